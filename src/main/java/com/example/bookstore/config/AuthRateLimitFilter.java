@@ -0,0 +1,55 @@
+package com.example.bookstore.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Rejects {@code POST /api/auth/token} and {@code /api/auth/register} from an IP that has no
+ * attempts left with 429, before the body is read. {@code GET /api/auth/available} draws on the
+ * same bucket, so it can not be used to enumerate usernames faster than registering them.
+ * The IP is the connection's remote address;
+ * behind a proxy set {@code server.forward-headers-strategy} so it is the client's.
+ */
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+    private static final String BODY = "{\"error\":\"" + AuthRateLimiter.MESSAGE + "\"}";
+
+    private final AuthRateLimiter rateLimiter;
+
+    public AuthRateLimitFilter(AuthRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if ("GET".equals(request.getMethod())) {
+            return !path.equals("/api/auth/available");
+        }
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        return !path.equals("/api/auth/token") && !path.equals("/api/auth/register");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long wait = rateLimiter.tryAcquireForIp(request.getRemoteAddr());
+        if (wait > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(wait));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write(BODY);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
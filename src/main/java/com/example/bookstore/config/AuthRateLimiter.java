@@ -0,0 +1,67 @@
+package com.example.bookstore.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits login and registration attempts, which each cost a BCrypt hash, per client IP (in
+ * {@link AuthRateLimitFilter}, before the request is parsed, together with username
+ * availability checks) and per username (in the controller, before the password encoder
+ * runs). See {@link TokenBuckets}.
+ */
+@Component
+public class AuthRateLimiter {
+    public static final String MESSAGE = "Too many attempts, try again later";
+
+    private final TokenBuckets byIp;
+    private final TokenBuckets byUsername;
+
+    public AuthRateLimiter(@Value("${bookstore.auth.rate-limit.ip.burst:20}") int ipBurst,
+                           @Value("${bookstore.auth.rate-limit.ip.per-minute:20}") int ipPerMinute,
+                           @Value("${bookstore.auth.rate-limit.username.burst:5}") int usernameBurst,
+                           @Value("${bookstore.auth.rate-limit.username.per-minute:5}") int usernamePerMinute,
+                           @Value("${bookstore.auth.rate-limit.max-keys:100000}") int maxKeys) {
+        this.byIp = new TokenBuckets(ipBurst, ipPerMinute, maxKeys);
+        this.byUsername = new TokenBuckets(usernameBurst, usernamePerMinute, maxKeys);
+    }
+
+    /**
+     * @return 0 if the attempt may go ahead, otherwise the seconds to wait
+     */
+    public long tryAcquireForIp(String ip) {
+        return toSeconds(byIp.tryAcquire(ip, System.nanoTime()));
+    }
+
+    /**
+     * @throws RateLimitExceededException if the username has no attempts left
+     */
+    public void acquireForUsername(String username) {
+        if (username == null) {
+            return;
+        }
+        long wait = toSeconds(byUsername.tryAcquire(username, System.nanoTime()));
+        if (wait > 0) {
+            throw new RateLimitExceededException(MESSAGE, wait);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.auth.rate-limit.sweep-interval:1m}")
+    public void sweep() {
+        long now = System.nanoTime();
+        byIp.sweep(now, true);
+        byUsername.sweep(now, true);
+    }
+
+    public void clear() {
+        byIp.clear();
+        byUsername.clear();
+    }
+
+    private static long toSeconds(long waitNanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return waitNanos <= 0 ? 0 : (waitNanos + second - 1) / second;
+    }
+}
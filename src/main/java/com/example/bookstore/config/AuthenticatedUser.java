@@ -0,0 +1,62 @@
+package com.example.bookstore.config;
+
+import com.example.bookstore.model.UserRole;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Principal of an authenticated request. Filled once when credentials are checked
+ * (or rebuilt from token claims), so request handling knows the user id without a query.
+ */
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+    private final Long id;
+    private final String username;
+    private final UserRole role;
+    private String password;
+
+    public AuthenticatedUser(Long id, String username, String password, UserRole role) {
+        this.id = Objects.requireNonNull(id, "id");
+        this.username = Objects.requireNonNull(username, "username");
+        this.password = password;
+        this.role = Objects.requireNonNull(role, "role");
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UserRole getRole() {
+        return role;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthenticatedUser(id=" + id + ", username=" + username + ", role=" + role + ")";
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bookstore.config;
+
+/**
+ * Thrown when a bounded queue of work (checkouts, password hashes) is full; handled as
+ * HTTP 429 with {@code Retry-After: 1}.
+ */
+public class OverloadedException extends RuntimeException {
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+
+    public OverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.bookstore.config;
+
+/**
+ * Thrown when a client has used up its attempts; handled as HTTP 429 with {@code Retry-After}.
+ */
+public class RateLimitExceededException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
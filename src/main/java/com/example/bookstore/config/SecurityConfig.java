@@ -1,15 +1,37 @@
 package com.example.bookstore.config;
 
+import com.example.bookstore.service.TokenService;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -20,32 +42,93 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, TokenService tokenService,
+                                                   AuthRateLimiter authRateLimiter) throws Exception {
         http
+            .addFilterBefore(new AuthRateLimitFilter(authRateLimiter), BearerTokenAuthenticationFilter.class)
             .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
-                .requestMatchers(HttpMethod.GET, "/api/books").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.GET, "/api/books", "/api/books/stream").permitAll()
+                .requestMatchers("/api/books/import", "/api/books/*/ledger", "/api/books/*/restock").hasRole("ADMIN")
                 .requestMatchers("/api/books/**", "/api/cart/**", "/api/orders/**").authenticated()
                 .anyRequest().authenticated()
             )
-            .formLogin(form -> form
-                .loginProcessingUrl("/api/auth/login")
-                .usernameParameter("username")
-                .passwordParameter("password")
-                .successHandler((req, res, auth) -> res.setStatus(200))
-                .failureHandler((req, res, ex) -> res.setStatus(401))
-            )
-            .logout(logout -> logout
-                .logoutUrl("/api/auth/logout")
-                .logoutSuccessHandler((req, res, auth) -> res.setStatus(200))
+            .oauth2ResourceServer(oauth2 -> oauth2
+                .jwt(jwt -> jwt.jwtAuthenticationConverter(token -> {
+                    AuthenticatedUser user = tokenService.toPrincipal(token);
+                    return UsernamePasswordAuthenticationToken.authenticated(user, token, user.getAuthorities());
+                }))
             )
             .headers(headers -> headers.frameOptions(frame -> frame.disable()));
         return http.build();
     }
 
+    /**
+     * BCrypt on its own worker pool (workers 0 = half the cores, queue-capacity 0 = four
+     * waiting hashes per worker). Hashes keep the strength they were created with, so changing
+     * {@code bcrypt-strength} only affects new passwords.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${bookstore.password.bcrypt-strength:10}") int strength,
+                                           @Value("${bookstore.password.workers:0}") int workers,
+                                           @Value("${bookstore.password.queue-capacity:0}") int queueCapacity,
+                                           @Value("${bookstore.password.wait-timeout:2s}") Duration waitTimeout,
+                                           MeterRegistry meterRegistry) {
+        if (workers == 0) {
+            workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        if (queueCapacity == 0) {
+            queueCapacity = workers * 4;
+        }
+        return new PooledPasswordEncoder(new BCryptPasswordEncoder(strength), workers, queueCapacity, waitTimeout,
+                meterRegistry);
+    }
+
+    /**
+     * Verifies credentials for the token endpoint; every other request is authenticated by its bearer token.
+     * A full hashing queue is reported as overload (429) even where the provider wraps it as an
+     * authentication failure.
+     */
+    @Bean
+    public AuthenticationManager authenticationManager(UserDetailsService userDetailsService,
+                                                       PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        ProviderManager providerManager = new ProviderManager(provider);
+        return authentication -> {
+            try {
+                return providerManager.authenticate(authentication);
+            } catch (InternalAuthenticationServiceException e) {
+                if (e.getCause() instanceof OverloadedException overloaded) {
+                    throw overloaded;
+                }
+                throw e;
+            }
+        };
+    }
+
+    @Bean
+    public JwtEncoder jwtEncoder(@Value("${jwt.secret}") String secret) {
+        return new NimbusJwtEncoder(new ImmutableSecret<>(signingKey(secret)));
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(@Value("${jwt.secret}") String secret) {
+        return NimbusJwtDecoder.withSecretKey(signingKey(secret))
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+    }
+
+    private static SecretKey signingKey(String secret) {
+        byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            throw new IllegalStateException("jwt.secret must be at least 32 bytes for HS256");
+        }
+        return new SecretKeySpec(bytes, "HmacSHA256");
     }
 }
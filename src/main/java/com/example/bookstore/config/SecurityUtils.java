@@ -4,7 +4,6 @@ import com.example.bookstore.model.AppUser;
 import com.example.bookstore.repository.UserRepository;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -16,24 +15,28 @@ public class SecurityUtils {
         this.userRepository = userRepository;
     }
 
-    public AppUser getCurrentUser() {
+    public AuthenticatedUser getCurrentPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new IllegalStateException("User not authenticated");
         }
 
         Object principal = authentication.getPrincipal();
-        String username;
-
-        if (principal instanceof UserDetails) {
-            username = ((UserDetails) principal).getUsername();
-        } else if (principal instanceof String) {
-            username = (String) principal;
-        } else {
-            throw new IllegalStateException("Unknown principal type: " + principal.getClass());
+        if (principal instanceof AuthenticatedUser user) {
+            return user;
         }
+        throw new IllegalStateException("Unknown principal type: " + principal.getClass());
+    }
 
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new IllegalStateException("User not found: " + username));
+    public Long getCurrentUserId() {
+        return getCurrentPrincipal().getId();
+    }
+
+    /**
+     * Id-only reference to the current user, good for setting associations.
+     * No SELECT is issued unless a non-id property is read.
+     */
+    public AppUser getCurrentUser() {
+        return userRepository.getReferenceById(getCurrentUserId());
     }
 }
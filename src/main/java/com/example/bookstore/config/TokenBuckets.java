@@ -0,0 +1,98 @@
+package com.example.bookstore.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One token bucket per key, each a single {@link AtomicLong} updated by compare-and-set
+ * (the generic cell rate algorithm): the value is the time at which the bucket will be full
+ * again, so taking a token pushes it one interval further and needs no refill thread. A
+ * request is admitted while that time is at most {@code burst} intervals ahead.
+ * <p>
+ * A full bucket is the same as no bucket, so idle keys are dropped when the map reaches
+ * {@code maxKeys}. If it is still full, keys that are not tracked share one overflow bucket:
+ * a flood of new keys is throttled together instead of growing the map.
+ */
+final class TokenBuckets {
+    private static final long EMPTY = Long.MIN_VALUE;
+    // how often a full map may be scanned for idle keys
+    private static final long SWEEP_PAUSE_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final long interval;
+    private final long tolerance;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow = new AtomicLong(EMPTY);
+    private final AtomicLong lastSweep = new AtomicLong(EMPTY);
+
+    TokenBuckets(int burst, int perMinute, int maxKeys) {
+        if (burst <= 0 || perMinute <= 0) {
+            throw new IllegalArgumentException("Burst and rate must be positive");
+        }
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("Max keys must be positive");
+        }
+        this.interval = Duration.ofMinutes(1).toNanos() / perMinute;
+        this.tolerance = interval * (burst - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes a token for {@code key}.
+     *
+     * @return 0 if the request is admitted, otherwise nanoseconds until it would be
+     */
+    long tryAcquire(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = track(key, now);
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + interval;
+            long wait = next - now - interval - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong track(String key, long now) {
+        if (buckets.size() >= maxKeys) {
+            sweep(now, false);
+            if (buckets.size() >= maxKeys) {
+                return overflow;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(EMPTY));
+    }
+
+    /**
+     * Drops the buckets that are full again. A request racing with the removal may still
+     * take its token from the dropped bucket; the key then starts over with a full one.
+     */
+    void sweep(long now, boolean force) {
+        long last = lastSweep.get();
+        if (!force && last != EMPTY && now - last < SWEEP_PAUSE_NANOS) {
+            return;
+        }
+        if (!lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    void clear() {
+        buckets.clear();
+        overflow.set(EMPTY);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.controller.dto.RegisterRequest;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.service.UserProvisioningService;
+import com.example.bookstore.service.UserProvisioningService.BulkResult;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Account provisioning for admins.
+ */
+@RestController
+@RequestMapping("/api/admin/users")
+public class AdminUserController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final UserProvisioningService provisioningService;
+    private final ObjectMapper objectMapper;
+
+    public AdminUserController(UserProvisioningService provisioningService, ObjectMapper objectMapper) {
+        this.provisioningService = provisioningService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Creates users from a JSON array or newline-delimited JSON of
+     * {@code {"username", "password", "email"}}, read as it arrives. Rows that cannot be
+     * created are listed in {@code failures}; the others are created regardless.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    @PreAuthorize("hasRole('ADMIN')")
+    public BulkResult provisionUsers(InputStream body) throws IOException {
+        try (MappingIterator<RegisterRequest> rows = objectMapper.readerFor(RegisterRequest.class).readValues(body)) {
+            return provisioningService.provision(parsed(rows), request -> {
+                AppUser user = new AppUser();
+                user.setUsername(request.getUsername());
+                user.setPassword(request.getPassword());
+                user.setEmail(request.getEmail());
+                return user;
+            });
+        }
+    }
+
+    // Malformed input surfaces as a 400 rather than a server error; MappingIterator wraps
+    // parse errors in plain runtime exceptions
+    private static Iterator<RegisterRequest> parsed(MappingIterator<RegisterRequest> rows) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rows.hasNext();
+                } catch (RuntimeException e) {
+                    throw malformed(rows, e);
+                }
+            }
+
+            @Override
+            public RegisterRequest next() {
+                try {
+                    return rows.next();
+                } catch (RuntimeException e) {
+                    throw malformed(rows, e);
+                }
+            }
+        };
+    }
+
+    private static IllegalArgumentException malformed(MappingIterator<?> rows, RuntimeException e) {
+        return new IllegalArgumentException("Malformed user list at line " + rows.getCurrentLocation().getLineNr(), e);
+    }
+}
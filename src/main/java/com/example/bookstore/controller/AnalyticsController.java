@@ -0,0 +1,37 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.service.SalesAnalytics;
+import com.example.bookstore.service.SalesAnalytics.BookUnits;
+import com.example.bookstore.service.SalesAnalytics.CategoryRevenue;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Sales figures for admins, answered from {@link SalesAnalytics} without querying the orders.
+ */
+@RestController
+@RequestMapping("/api/admin/analytics")
+public class AnalyticsController {
+    private final SalesAnalytics salesAnalytics;
+
+    public AnalyticsController(SalesAnalytics salesAnalytics) {
+        this.salesAnalytics = salesAnalytics;
+    }
+
+    @GetMapping("/bestsellers")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<BookUnits> getBestsellers(@RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > 100) {
+            throw new IllegalArgumentException("Limit must be between 1 and 100");
+        }
+        return salesAnalytics.bestsellers(limit);
+    }
+
+    @GetMapping("/revenue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<CategoryRevenue> getRevenueByCategory() {
+        return salesAnalytics.revenueByCategory();
+    }
+}
@@ -1,13 +1,23 @@
 package com.example.bookstore.controller;
 
+import com.example.bookstore.config.AuthRateLimiter;
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.controller.dto.LoginRequest;
 import com.example.bookstore.controller.dto.RegisterRequest;
 import com.example.bookstore.controller.dto.RegisterResponse;
+import com.example.bookstore.controller.dto.TokenResponse;
+import com.example.bookstore.controller.dto.UsernameAvailabilityResponse;
 import com.example.bookstore.model.AppUser;
+import com.example.bookstore.service.TokenService;
 import com.example.bookstore.service.UserService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -16,14 +26,22 @@ public class AuthController {
     private static final Logger log = LoggerFactory.getLogger(AuthController.class);
 
     private final UserService userService;
+    private final AuthenticationManager authenticationManager;
+    private final TokenService tokenService;
+    private final AuthRateLimiter rateLimiter;
 
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, AuthenticationManager authenticationManager,
+                          TokenService tokenService, AuthRateLimiter rateLimiter) {
         this.userService = userService;
+        this.authenticationManager = authenticationManager;
+        this.tokenService = tokenService;
+        this.rateLimiter = rateLimiter;
     }
 
     @PostMapping("/register")
     public ResponseEntity<RegisterResponse> register(@Valid @RequestBody RegisterRequest request) {
         log.info("Register attempt for username: {}", request.getUsername());
+        rateLimiter.acquireForUsername(request.getUsername());
         AppUser user = new AppUser();
         user.setUsername(request.getUsername());
         user.setPassword(request.getPassword());
@@ -40,15 +58,36 @@ public class AuthController {
     }
 
     /**
-     * Login is handled by Spring Security formLogin filter at /api/auth/login
-     * This endpoint just returns 200 if user is authenticated
+     * Lets a sign-up form check a name as it is typed; most free names are answered from
+     * memory. A name reported available can still be taken before it is registered. Checks
+     * count against the client IP's login attempts, so forms should send them debounced.
      */
+    @GetMapping("/available")
+    public UsernameAvailabilityResponse isAvailable(@RequestParam String username) {
+        if (username.isBlank()) {
+            throw new IllegalArgumentException("Username is required");
+        }
+        return new UsernameAvailabilityResponse(username, userService.isUsernameAvailable(username));
+    }
+
+    /**
+     * Exchanges credentials for a bearer token; send it as {@code Authorization: Bearer <token>}.
+     */
+    @PostMapping("/token")
+    public ResponseEntity<TokenResponse> token(@Valid @RequestBody LoginRequest request) {
+        rateLimiter.acquireForUsername(request.getUsername());
+        Authentication authentication = authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(request.getUsername(), request.getPassword()));
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return ResponseEntity.ok(new TokenResponse(tokenService.issueToken(user), tokenService.getTtl().toSeconds()));
+    }
+
     @GetMapping("/me")
-    public ResponseEntity<RegisterResponse> getCurrentUser(@org.springframework.security.core.annotation.AuthenticationPrincipal org.springframework.security.core.userdetails.UserDetails userDetails) {
-        if (userDetails == null) {
+    public ResponseEntity<RegisterResponse> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser principal) {
+        if (principal == null) {
             return ResponseEntity.status(401).build();
         }
-        AppUser user = userService.findByUsername(userDetails.getUsername()).orElseThrow();
+        AppUser user = userService.findByUsername(principal.getUsername()).orElseThrow();
         return ResponseEntity.ok(new RegisterResponse(
             user.getId(),
             user.getUsername(),
@@ -1,25 +1,79 @@
 package com.example.bookstore.controller;
 
+import com.example.bookstore.controller.dto.BookPageResponse;
+import com.example.bookstore.controller.dto.StockLedgerResponse;
 import com.example.bookstore.model.Book;
+import com.example.bookstore.service.BookFeedReader;
+import com.example.bookstore.service.BookImportService;
+import com.example.bookstore.service.BookImportService.ImportResult;
 import com.example.bookstore.service.BookService;
+import com.example.bookstore.service.StockLedger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
     private final BookService bookService;
+    private final BookImportService importService;
+    private final StockLedger stockLedger;
+    private final ObjectMapper objectMapper;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, BookImportService importService, StockLedger stockLedger,
+                          ObjectMapper objectMapper) {
         this.bookService = bookService;
+        this.importService = importService;
+        this.stockLedger = stockLedger;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public List<Book> getAllBooks() {
-        return bookService.getAllBooks();
+    public BookPageResponse getAllBooks(@RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0 || limit > 500) {
+            throw new IllegalArgumentException("Limit must be between 1 and 500");
+        }
+        Slice<Book> slice = bookService.getBooksAfter(decodeCursor(cursor), limit);
+        List<Book> books = slice.getContent();
+        String next = slice.hasNext() ? encodeCursor(books.get(books.size() - 1).getId()) : null;
+        return new BookPageResponse(books, next);
+    }
+
+    /**
+     * Whole catalog as newline-delimited JSON, written row by row while the query is read.
+     */
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public void streamBooks(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (SequenceWriter writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .writeValues(response.getOutputStream())) {
+            bookService.streamAllBooks(book -> {
+                try {
+                    writer.write(book);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
     }
 
     @GetMapping("/category")
@@ -28,8 +82,12 @@ public class BookController {
     }
 
     @GetMapping("/search")
-    public List<Book> searchBooks(@RequestParam String search) {
-        return bookService.searchBooks(search);
+    public List<Book> searchBooks(@RequestParam String search,
+                                  @RequestParam(defaultValue = "20") int limit) {
+        if (limit <= 0 || limit > 100) {
+            throw new IllegalArgumentException("Limit must be between 1 and 100");
+        }
+        return bookService.searchBooks(search, limit);
     }
 
     @PostMapping
@@ -38,6 +96,28 @@ public class BookController {
         return ResponseEntity.status(201).body(bookService.addBook(book));
     }
 
+    /**
+     * Upserts a catalog feed (CSV with a header row, or newline-delimited JSON) by title and
+     * author, read from the request as it arrives. Rows that fail are listed by line number.
+     */
+    @PostMapping(value = "/import", consumes = CSV)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ImportResult importCsv(InputStream body) throws IOException {
+        return importBooks(body, BookFeedReader.Format.CSV);
+    }
+
+    @PostMapping(value = "/import", consumes = NDJSON)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ImportResult importNdjson(InputStream body) throws IOException {
+        return importBooks(body, BookFeedReader.Format.NDJSON);
+    }
+
+    private ImportResult importBooks(InputStream body, BookFeedReader.Format format) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return importService.importBooks(new BookFeedReader(reader, format, objectMapper));
+        }
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteBook(@PathVariable Long id) {
@@ -53,4 +133,35 @@ public class BookController {
         }
         return ResponseEntity.ok(bookService.updateStock(id, stock));
     }
+
+    @PostMapping("/{id}/restock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Book> restock(@PathVariable Long id, @RequestParam int quantity) {
+        return ResponseEntity.ok(bookService.restock(id, quantity));
+    }
+
+    @GetMapping("/{id}/ledger")
+    @PreAuthorize("hasRole('ADMIN')")
+    public StockLedgerResponse getLedger(@PathVariable Long id, @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0 || limit > 500) {
+            throw new IllegalArgumentException("Limit must be between 1 and 500");
+        }
+        return new StockLedgerResponse(id, stockLedger.currentStock(id), stockLedger.recentMovements(id, limit));
+    }
+
+    private static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
 }
@@ -1,11 +1,16 @@
 package com.example.bookstore.controller;
 
+import com.example.bookstore.controller.dto.CartLineChange;
 import com.example.bookstore.model.Cart;
 import com.example.bookstore.service.CartService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
@@ -33,6 +38,18 @@ public class CartController {
         return ResponseEntity.ok(cartService.updateCartItem(bookId, quantity));
     }
 
+    @PatchMapping
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Cart> applyChanges(@RequestBody List<CartLineChange> changes) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartLineChange change : changes) {
+            if (quantities.put(change.getBookId(), change.getQuantity()) != null) {
+                throw new IllegalArgumentException("Duplicate book in cart changes: " + change.getBookId());
+            }
+        }
+        return ResponseEntity.ok(cartService.applyChanges(quantities));
+    }
+
     @DeleteMapping("/remove")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<Cart> removeFromCart(@RequestParam Long bookId) {
@@ -1,34 +1,123 @@
 package com.example.bookstore.controller;
 
+import com.example.bookstore.controller.dto.CheckoutStatusResponse;
+import com.example.bookstore.controller.dto.OrderPageResponse;
 import com.example.bookstore.model.Order;
+import com.example.bookstore.model.OrderSummary;
+import com.example.bookstore.service.CheckoutBatcher;
+import com.example.bookstore.service.CheckoutService;
+import com.example.bookstore.service.CheckoutTicket;
+import com.example.bookstore.service.IdempotencyService;
 import com.example.bookstore.service.OrderService;
-import org.springframework.data.domain.Page;
+import com.example.bookstore.service.OrderService.OrderCursor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
     private final OrderService orderService;
+    private final CheckoutBatcher checkoutBatcher;
+    // only present with bookstore.checkout.async
+    private final ObjectProvider<CheckoutService> checkoutService;
+    private final IdempotencyService idempotencyService;
+    private final boolean asyncCheckout;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, CheckoutBatcher checkoutBatcher,
+                           ObjectProvider<CheckoutService> checkoutService,
+                           IdempotencyService idempotencyService,
+                           @Value("${bookstore.checkout.async:false}") boolean asyncCheckout) {
         this.orderService = orderService;
+        this.checkoutBatcher = checkoutBatcher;
+        this.checkoutService = checkoutService;
+        this.idempotencyService = idempotencyService;
+        this.asyncCheckout = asyncCheckout;
     }
 
+    /**
+     * Places the order synchronously (200 with the order), or with {@code bookstore.checkout.async}
+     * queues it and answers 202 with the URL of the checkout status. Retries carrying the same
+     * {@code Idempotency-Key} get the first response back instead of placing another order.
+     */
     @PostMapping
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Order> createOrder() {
-        return ResponseEntity.ok(orderService.createOrder());
+    public ResponseEntity<?> createOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return placeOrder();
+        }
+        return idempotencyService.execute(idempotencyKey, this::placeOrder);
+    }
+
+    private ResponseEntity<?> placeOrder() {
+        if (!asyncCheckout) {
+            return ResponseEntity.ok(checkoutBatcher.createOrder());
+        }
+        CheckoutTicket ticket = checkoutService.getObject().submit();
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/checkouts/" + ticket.getId()))
+                .body(new CheckoutStatusResponse(ticket));
+    }
+
+    @GetMapping("/checkouts/{id}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CheckoutStatusResponse> getCheckout(@PathVariable String id) {
+        CheckoutService service = checkoutService.getIfAvailable();
+        if (service == null) {
+            throw new IllegalArgumentException("Checkout not found");
+        }
+        return ResponseEntity.ok(new CheckoutStatusResponse(service.getTicket(id)));
     }
 
     @GetMapping
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Page<Order>> getUserOrders(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
+    public ResponseEntity<OrderPageResponse> getUserOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String direction) {
-        return ResponseEntity.ok(orderService.getUserOrders(page, size, sortBy, direction));
+        if (limit <= 0 || limit > 100) {
+            throw new IllegalArgumentException("Limit must be between 1 and 100");
+        }
+        Slice<OrderSummary> slice = orderService.getUserOrders(decodeCursor(cursor), limit, sortBy, direction);
+        List<OrderSummary> orders = slice.getContent();
+        String next = slice.hasNext() ? encodeCursor(OrderCursor.of(orders.get(orders.size() - 1))) : null;
+        return ResponseEntity.ok(new OrderPageResponse(orders, next));
+    }
+
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Order> getOrder(@PathVariable Long id) {
+        return ResponseEntity.ok(orderService.getOrder(id));
+    }
+
+    private static String encodeCursor(OrderCursor cursor) {
+        String value = cursor.createdAt() + "|" + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static OrderCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            return new OrderCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.valueOf(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.example.bookstore.controller.dto;
+
+import com.example.bookstore.model.Book;
+
+import java.util.List;
+
+public class BookPageResponse {
+    private List<Book> items;
+    private String next;
+
+    public BookPageResponse() {}
+
+    public BookPageResponse(List<Book> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<Book> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Book> items) {
+        this.items = items;
+    }
+
+    /**
+     * Opaque cursor for the following page, or null when this is the last page.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bookstore.controller.dto;
+
+/**
+ * One line of a basket sync: the desired quantity of a book, where 0 removes it from the cart.
+ */
+public class CartLineChange {
+    private Long bookId;
+    private int quantity;
+
+    public CartLineChange() {}
+
+    public CartLineChange(Long bookId, int quantity) {
+        this.bookId = bookId;
+        this.quantity = quantity;
+    }
+
+    public Long getBookId() { return bookId; }
+    public void setBookId(Long bookId) { this.bookId = bookId; }
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+}
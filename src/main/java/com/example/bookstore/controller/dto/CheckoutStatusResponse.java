@@ -0,0 +1,28 @@
+package com.example.bookstore.controller.dto;
+
+import com.example.bookstore.service.CheckoutTicket;
+
+public class CheckoutStatusResponse {
+    private String id;
+    private CheckoutTicket.Status status;
+    private Long orderId;
+    private String error;
+
+    public CheckoutStatusResponse() {}
+
+    public CheckoutStatusResponse(CheckoutTicket ticket) {
+        this.id = ticket.getId();
+        this.status = ticket.getStatus();
+        this.orderId = ticket.getOrderId();
+        this.error = ticket.getError();
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public CheckoutTicket.Status getStatus() { return status; }
+    public void setStatus(CheckoutTicket.Status status) { this.status = status; }
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
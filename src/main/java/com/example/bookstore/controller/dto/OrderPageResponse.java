@@ -0,0 +1,36 @@
+package com.example.bookstore.controller.dto;
+
+import com.example.bookstore.model.OrderSummary;
+
+import java.util.List;
+
+public class OrderPageResponse {
+    private List<OrderSummary> items;
+    private String next;
+
+    public OrderPageResponse() {}
+
+    public OrderPageResponse(List<OrderSummary> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<OrderSummary> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderSummary> items) {
+        this.items = items;
+    }
+
+    /**
+     * Opaque cursor for the following page, or null when this is the last page.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bookstore.controller.dto;
+
+import com.example.bookstore.model.StockMovement;
+
+import java.util.List;
+
+public class StockLedgerResponse {
+    private Long bookId;
+    private long stock;
+    private List<StockMovement> movements;
+
+    public StockLedgerResponse() {}
+
+    public StockLedgerResponse(Long bookId, long stock, List<StockMovement> movements) {
+        this.bookId = bookId;
+        this.stock = stock;
+        this.movements = movements;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    /**
+     * Stock according to the ledger: the latest snapshot plus the movements after it.
+     */
+    public long getStock() {
+        return stock;
+    }
+
+    public void setStock(long stock) {
+        this.stock = stock;
+    }
+
+    /**
+     * Most recent movements, newest first.
+     */
+    public List<StockMovement> getMovements() {
+        return movements;
+    }
+
+    public void setMovements(List<StockMovement> movements) {
+        this.movements = movements;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bookstore.controller.dto;
+
+public class UsernameAvailabilityResponse {
+    private String username;
+    private boolean available;
+
+    public UsernameAvailabilityResponse() {}
+
+    public UsernameAvailabilityResponse(String username, boolean available) {
+        this.username = username;
+        this.available = available;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+}
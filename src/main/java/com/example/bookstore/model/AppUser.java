@@ -1,9 +1,13 @@
 package com.example.bookstore.model;
 
+import com.example.bookstore.service.UserCacheListener;
+import com.example.bookstore.service.UsernameFilterListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,7 +17,10 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "app-user")
 @Table(name = "app_user")
+@EntityListeners({UserCacheListener.class, UsernameFilterListener.class})
 @Getter
 @Setter
 @ToString
@@ -22,7 +29,8 @@ public class AppUser implements UserDetails, Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_user_seq")
+    @SequenceGenerator(name = "app_user_seq", sequenceName = "app_user_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
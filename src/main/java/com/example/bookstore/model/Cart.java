@@ -1,10 +1,13 @@
 package com.example.bookstore.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 
 @Entity
 @Getter
@@ -13,27 +16,64 @@ import java.util.List;
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Cart {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+    @SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @ToString.Exclude
+    @JsonIgnore
     private AppUser user;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "cart_id")
-    private List<CartItem> items = new ArrayList<>();
+    // Keyed by book id: every mutation is a single lookup and touches only its own row
+    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+    @MapKey(name = "bookId")
+    @OrderBy("id")
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<Long, CartItem> items = new LinkedHashMap<>();
 
-    public List<CartItem> getItems() {
-        return new ArrayList<>(items);
+    /**
+     * Read-only view of the cart lines; use the mutation methods below to change them.
+     */
+    public Collection<CartItem> getItems() {
+        return Collections.unmodifiableCollection(items.values());
     }
 
-    public void setItems(List<CartItem> items) {
-        this.items = new ArrayList<>(items);
+    public Optional<CartItem> findItem(Long bookId) {
+        return Optional.ofNullable(items.get(bookId));
     }
 
-    // Custom getUser and setUser methods removed - using standard Lombok getters/setters
-    // Fields id and user already have generated getter/setter from @Getter @Setter
-}
\ No newline at end of file
+    public CartItem addOrIncrement(Book book, int quantity) {
+        CartItem item = items.get(book.getId());
+        if (item == null) {
+            item = new CartItem();
+            item.setCart(this);
+            item.setBook(book);
+            item.setQuantity(quantity);
+            items.put(book.getId(), item);
+        } else {
+            item.setQuantity(item.getQuantity() + quantity);
+        }
+        return item;
+    }
+
+    public CartItem setQuantity(Long bookId, int quantity) {
+        CartItem item = items.get(bookId);
+        if (item == null) {
+            throw new IllegalArgumentException("Book not in cart");
+        }
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    public boolean remove(Long bookId) {
+        return items.remove(bookId) != null;
+    }
+
+    public void clear() {
+        items.clear();
+    }
+}
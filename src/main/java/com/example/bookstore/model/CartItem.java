@@ -1,5 +1,6 @@
 package com.example.bookstore.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Positive;
 import lombok.*;
@@ -12,16 +13,31 @@ import lombok.*;
 @EqualsAndHashCode(of = "id")
 public class CartItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_seq")
+    @SequenceGenerator(name = "cart_item_seq", sequenceName = "cart_item_seq", allocationSize = 50)
     private Long id;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cart_id", nullable = false)
+    @ToString.Exclude
+    @JsonIgnore
+    private Cart cart;
+
     @ManyToOne
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
-    // Using standard getters/setters from Lombok @Getter @Setter
+    // Read-only mirror of book_id, used as the key of Cart.items
+    @Column(name = "book_id", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long bookId;
 
     @Column(nullable = false)
     @Positive(message = "Quantity must be positive")
     private int quantity;
-}
\ No newline at end of file
+
+    public void setBook(Book book) {
+        this.book = book;
+        this.bookId = book == null ? null : book.getId();
+    }
+}
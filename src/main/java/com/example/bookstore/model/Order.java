@@ -1,8 +1,10 @@
 package com.example.bookstore.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Positive;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.data.annotation.CreatedDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -16,14 +18,19 @@ import java.util.Collections;
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Order {
+    // Items of up to this many orders are loaded together when several orders are read
+    public static final int ITEMS_BATCH_SIZE = 100;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @ToString.Exclude
+    @JsonIgnore
     private AppUser user;
 
     @Column(name = "created_at", nullable = false)
@@ -34,8 +41,10 @@ public class Order {
     @Positive(message = "Total price must be positive")
     private double totalPrice;
 
+    // Not nullable, so order_id is written with the item's insert instead of a later update per item
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "order_id")
+    @JoinColumn(name = "order_id", nullable = false)
+    @BatchSize(size = ITEMS_BATCH_SIZE)
     private List<OrderItem> items = new ArrayList<>();
 
     @PrePersist
@@ -0,0 +1,95 @@
+package com.example.bookstore.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Denormalized row per order for the order history list, written together with the order.
+ * The full order with its items is only loaded for the detail view.
+ * <p>
+ * The id is the order's, assigned before saving, so {@link Persistable#isNew()} tells Spring
+ * Data to persist a new summary instead of merging it, which would select it first.
+ */
+@Entity
+@Table(name = "order_summary",
+        indexes = @Index(name = "idx_order_summary_user_created", columnList = "user_id, created_at, order_id"))
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class OrderSummary implements Persistable<Long> {
+    public static final int PREVIEW_TITLES = 3;
+
+    @Id
+    @Column(name = "order_id")
+    @EqualsAndHashCode.Include
+    private Long orderId;
+
+    @Column(name = "user_id", nullable = false)
+    @JsonIgnore
+    private Long userId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "total_price", nullable = false)
+    private double totalPrice;
+
+    // Number of books ordered, counting quantities
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+
+    // Titles of the first PREVIEW_TITLES lines
+    @Column(name = "titles", length = 1024)
+    @Convert(converter = StringListConverter.class)
+    private List<String> titles = new ArrayList<>();
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    @JsonIgnore
+    public Long getId() {
+        return orderId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public static OrderSummary of(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.setOrderId(order.getId());
+        summary.setUserId(order.getUser().getId());
+        summary.setCreatedAt(order.getCreatedAt());
+        summary.setTotalPrice(order.getTotalPrice());
+        List<String> titles = new ArrayList<>();
+        int itemCount = 0;
+        for (OrderItem item : order.getItems()) {
+            itemCount += item.getQuantity();
+            if (titles.size() < PREVIEW_TITLES) {
+                titles.add(item.getBook().getTitle());
+            }
+        }
+        summary.setItemCount(itemCount);
+        summary.setTitles(titles);
+        return summary;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.bookstore.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One change of a book's stock. Rows are only ever appended; the stock of a book is its latest
+ * {@link StockSnapshot} plus the movements after it.
+ */
+@Entity
+@Table(name = "stock_movement",
+        indexes = @Index(name = "idx_stock_movement_book", columnList = "book_id, id"))
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+public class StockMovement {
+    public enum Type {
+        RESTOCK, SALE, CORRECTION
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    // Positive for stock coming in, negative for stock going out
+    @Column(name = "delta", nullable = false)
+    private int delta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 16)
+    private Type type;
+
+    // Set for sales
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public StockMovement(Long bookId, int delta, Type type, Long orderId) {
+        this.bookId = bookId;
+        this.delta = delta;
+        this.type = type;
+        this.orderId = orderId;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.bookstore.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock of a book after every {@link StockMovement} up to {@code movementId}, written by compaction.
+ */
+@Entity
+@Table(name = "stock_snapshot")
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class StockSnapshot {
+    @Id
+    @Column(name = "book_id")
+    @EqualsAndHashCode.Include
+    private Long bookId;
+
+    @Column(name = "stock", nullable = false)
+    private long stock;
+
+    @Column(name = "movement_id", nullable = false)
+    private long movementId;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,29 @@
+package com.example.bookstore.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores a short list of strings in one column, separated by a control character
+ * that does not occur in titles.
+ */
+@Converter
+public class StringListConverter implements AttributeConverter<List<String>, String> {
+    private static final String SEPARATOR = "\u001F";
+
+    @Override
+    public String convertToDatabaseColumn(List<String> values) {
+        return values == null || values.isEmpty() ? null : String.join(SEPARATOR, values);
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(String column) {
+        return column == null || column.isEmpty()
+                ? new ArrayList<>()
+                : new ArrayList<>(Arrays.asList(column.split(SEPARATOR)));
+    }
+}
@@ -1,14 +1,53 @@
 package com.example.bookstore.repository;
 
 import com.example.bookstore.model.Book;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookStockRepository {
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "books-by-category")
+    })
     List<Book> findByCategory(String category);
 
-    @Query("SELECT b FROM Book b WHERE b.title LIKE %:search% OR b.author LIKE %:search%")
-    List<Book> findByTitleOrAuthor(String search);
-}
\ No newline at end of file
+    @Query("SELECT b FROM Book b WHERE b.title LIKE %:search% OR b.author LIKE %:search% ORDER BY b.id")
+    List<Book> findByTitleOrAuthor(String search, Limit limit);
+
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Must be consumed inside a transaction and closed by the caller
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAllOrderedById();
+
+    // Holds the row lock until the transaction ends, so stock cannot change between read and write
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id = :id")
+    Optional<Book> findByIdForUpdate(Long id);
+
+    // Locked the same way; the catalog import matches the books of a chunk by title and author
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.title IN :titles ORDER BY b.id")
+    List<Book> findByTitleInForUpdate(Collection<String> titles);
+
+    // Current stock read from the table, bypassing the second-level cache
+    List<StockLevel> findStockLevelsByIdIn(Collection<Long> ids);
+
+    interface StockLevel {
+        Long getId();
+
+        int getStock();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.bookstore.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock updates that must not go through a read-modify-write of the {@code Book} entity.
+ */
+public interface BookStockRepository {
+
+    /**
+     * Decrements stock of every book by the given quantity with guarded
+     * {@code stock >= quantity} updates sent as one JDBC batch.
+     * Must run inside a transaction: rows that were decremented are only undone by rolling it back.
+     *
+     * @return ids of books whose stock was insufficient (empty when every row was updated)
+     */
+    List<Long> decrementStock(Map<Long, Integer> quantitiesByBookId);
+
+    /**
+     * Subtracts the given amounts from stock without a guard, as one JDBC batch; for callers
+     * that have already allocated the stock elsewhere.
+     */
+    void subtractStock(Map<Long, Long> amountsByBookId);
+}
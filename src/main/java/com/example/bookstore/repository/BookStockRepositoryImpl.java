@@ -0,0 +1,79 @@
+package com.example.bookstore.repository;
+
+import com.example.bookstore.model.Book;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BookStockRepositoryImpl implements BookStockRepository {
+    private static final String DECREMENT_SQL = "UPDATE book SET stock = stock - ? WHERE id = ? AND stock >= ?";
+    private static final String SUBTRACT_SQL = "UPDATE book SET stock = stock - ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public BookStockRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public List<Long> decrementStock(Map<Long, Integer> quantitiesByBookId) {
+        if (quantitiesByBookId.isEmpty()) {
+            return List.of();
+        }
+        // Same lock order for every transaction, so concurrent checkouts cannot deadlock
+        List<Long> bookIds = new ArrayList<>(new TreeMap<>(quantitiesByBookId).keySet());
+        List<Object[]> args = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            int quantity = quantitiesByBookId.get(bookId);
+            args.add(new Object[]{quantity, bookId, quantity});
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_SQL, args);
+        evictFromCache(bookIds);
+
+        List<Long> rejected = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            // Drivers that answer SUCCESS_NO_INFO are treated as failures rather than risking an oversell
+            if (counts[i] < 1) {
+                rejected.add(bookIds.get(i));
+            }
+        }
+        return rejected;
+    }
+
+    @Override
+    public void subtractStock(Map<Long, Long> amountsByBookId) {
+        if (amountsByBookId.isEmpty()) {
+            return;
+        }
+        List<Long> bookIds = new ArrayList<>(new TreeMap<>(amountsByBookId).keySet());
+        List<Object[]> args = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            args.add(new Object[]{amountsByBookId.get(bookId), bookId});
+        }
+        jdbcTemplate.batchUpdate(SUBTRACT_SQL, args);
+        evictFromCache(bookIds);
+    }
+
+    private void evictFromCache(List<Long> bookIds) {
+        Runnable evict = () -> bookIds.forEach(id -> entityManagerFactory.getCache().evict(Book.class, id));
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A concurrent reader may have re-cached the pre-commit row in the meantime
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict.run();
+                }
+            });
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.bookstore.repository;
 
 import com.example.bookstore.model.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
+    // Cart, lines and their books in one query instead of one per line and per book
+    @EntityGraph(attributePaths = {"items", "items.book"})
     Optional<Cart> findByUserId(Long userId);
 }
\ No newline at end of file
@@ -1,10 +1,45 @@
 package com.example.bookstore.repository;
 
 import com.example.bookstore.model.Order;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Write side of orders and the per-order detail view; the history list is served from
+ * {@link OrderSummaryRepository}.
+ */
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    Page<Order> findByUserId(Long userId, Pageable pageable);
-}
\ No newline at end of file
+
+    // Order, items and their books in one query
+    @EntityGraph(attributePaths = {"items", "items.book"})
+    Optional<Order> findByIdAndUserId(Long id, Long userId);
+
+    @Query("SELECT COALESCE(MAX(o.id), 0) FROM Order o")
+    long findMaxId();
+
+    /**
+     * Units sold and revenue (in cents, rounded per line) per book over the orders with
+     * {@code after < id <= upTo}, attributed to each book's current category.
+     */
+    @Query("""
+            SELECT b.id AS bookId, b.category AS category, SUM(i.quantity) AS units,
+                   SUM(ROUND(i.quantity * i.price * 100, 0)) AS revenueCents
+            FROM Order o JOIN o.items i JOIN i.book b
+            WHERE o.id > :after AND o.id <= :upTo
+            GROUP BY b.id, b.category""")
+    List<BookSalesTotal> sumSalesBetween(long after, long upTo);
+
+    interface BookSalesTotal {
+        Long getBookId();
+
+        String getCategory();
+
+        Long getUnits();
+
+        Double getRevenueCents();
+    }
+}
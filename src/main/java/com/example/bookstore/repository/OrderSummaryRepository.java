@@ -0,0 +1,33 @@
+package com.example.bookstore.repository;
+
+import com.example.bookstore.model.OrderSummary;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order history is read with keyset queries over {@code (created_at, order_id)}, served by
+ * {@code idx_order_summary_user_created}: every page is a single index range scan from the
+ * last row of the previous one, with no OFFSET, no COUNT and no joins.
+ */
+public interface OrderSummaryRepository extends JpaRepository<OrderSummary, Long> {
+
+    @Query("SELECT s FROM OrderSummary s WHERE s.userId = :userId ORDER BY s.createdAt DESC, s.orderId DESC")
+    List<OrderSummary> findLatestByUserId(Long userId, Limit limit);
+
+    @Query("SELECT s FROM OrderSummary s WHERE s.userId = :userId"
+            + " AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.orderId < :orderId))"
+            + " ORDER BY s.createdAt DESC, s.orderId DESC")
+    List<OrderSummary> findByUserIdBefore(Long userId, LocalDateTime createdAt, Long orderId, Limit limit);
+
+    @Query("SELECT s FROM OrderSummary s WHERE s.userId = :userId ORDER BY s.createdAt ASC, s.orderId ASC")
+    List<OrderSummary> findOldestByUserId(Long userId, Limit limit);
+
+    @Query("SELECT s FROM OrderSummary s WHERE s.userId = :userId"
+            + " AND (s.createdAt > :createdAt OR (s.createdAt = :createdAt AND s.orderId > :orderId))"
+            + " ORDER BY s.createdAt ASC, s.orderId ASC")
+    List<OrderSummary> findByUserIdAfter(Long userId, LocalDateTime createdAt, Long orderId, Limit limit);
+}
@@ -0,0 +1,86 @@
+package com.example.bookstore.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persisted totals of the sales analytics, see {@code SalesAnalytics}. Every row is a running
+ * sum: a checkpoint adds the totals of the orders placed since the previous one and moves
+ * the watermark, in the caller's transaction.
+ */
+@Repository
+public class SalesCheckpointRepository {
+    private static final String BOOK = "book";
+    private static final String CATEGORY = "category";
+    private static final String WATERMARK = "watermark";
+    private static final String WATERMARK_ITEM = "orders";
+
+    private static final String SELECT_SQL = "SELECT item, amount FROM sales_checkpoint WHERE kind = ?";
+    private static final String ADD_SQL = "UPDATE sales_checkpoint SET amount = amount + ? WHERE kind = ? AND item = ?";
+    private static final String INSERT_SQL = "INSERT INTO sales_checkpoint (kind, item, amount) VALUES (?, ?, ?)";
+    private static final String WATERMARK_SQL = "UPDATE sales_checkpoint SET amount = ? WHERE kind = ? AND item = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SalesCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Highest order id included in the checkpoint, 0 if there is none yet.
+     */
+    public long findWatermark() {
+        List<Long> amounts = jdbcTemplate.queryForList(
+                "SELECT amount FROM sales_checkpoint WHERE kind = ? AND item = ?", Long.class, WATERMARK, WATERMARK_ITEM);
+        return amounts.isEmpty() ? 0 : amounts.get(0);
+    }
+
+    public Map<Long, Long> findUnitsByBook() {
+        Map<Long, Long> units = new HashMap<>();
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            units.put(Long.valueOf(rs.getString(1)), rs.getLong(2));
+        }, BOOK);
+        return units;
+    }
+
+    public Map<String, Long> findRevenueCentsByCategory() {
+        Map<String, Long> revenue = new HashMap<>();
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            revenue.put(rs.getString(1), rs.getLong(2));
+        }, CATEGORY);
+        return revenue;
+    }
+
+    public void add(Map<Long, Long> unitsByBook, Map<String, Long> revenueCentsByCategory, long watermark) {
+        List<Object[]> rows = new ArrayList<>();
+        unitsByBook.forEach((bookId, units) -> rows.add(new Object[]{BOOK, bookId.toString(), units}));
+        revenueCentsByCategory.forEach((category, cents) -> rows.add(new Object[]{CATEGORY, category, cents}));
+        upsert(rows);
+
+        if (jdbcTemplate.update(WATERMARK_SQL, watermark, WATERMARK, WATERMARK_ITEM) == 0) {
+            jdbcTemplate.update(INSERT_SQL, WATERMARK, WATERMARK_ITEM, watermark);
+        }
+    }
+
+    private void upsert(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Object[]> updates = rows.stream().map(row -> new Object[]{row[2], row[0], row[1]}).toList();
+        int[] counts = jdbcTemplate.batchUpdate(ADD_SQL, updates);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                inserts.add(rows.get(i));
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+    }
+}
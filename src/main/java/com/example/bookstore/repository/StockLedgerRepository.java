@@ -0,0 +1,116 @@
+package com.example.bookstore.repository;
+
+import com.example.bookstore.model.StockMovement;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends to the stock ledger and folds it into snapshots with set-based statements; see
+ * {@code StockLedger}. Every method runs in the caller's transaction.
+ */
+@Repository
+public class StockLedgerRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO stock_movement (book_id, delta, type, order_id, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    // Books without a snapshot get an opening balance: their stock before every movement on record
+    private static final String OPEN_SQL = """
+            INSERT INTO stock_snapshot (book_id, stock, movement_id, taken_at)
+            SELECT b.id, b.stock - COALESCE((SELECT SUM(m.delta) FROM stock_movement m WHERE m.book_id = b.id), 0), 0, ?
+            FROM book b
+            WHERE NOT EXISTS (SELECT 1 FROM stock_snapshot s WHERE s.book_id = b.id)""";
+
+    private static final String COMPACT_SQL = """
+            UPDATE stock_snapshot s
+            SET stock = s.stock + (SELECT COALESCE(SUM(m.delta), 0) FROM stock_movement m
+                                   WHERE m.book_id = s.book_id AND m.id > s.movement_id AND m.id <= ?),
+                movement_id = ?,
+                taken_at = ?
+            WHERE EXISTS (SELECT 1 FROM stock_movement m
+                          WHERE m.book_id = s.book_id AND m.id > s.movement_id AND m.id <= ?)""";
+
+    private static final String STOCK_SQL = """
+            SELECT s.stock + COALESCE((SELECT SUM(m.delta) FROM stock_movement m
+                                       WHERE m.book_id = s.book_id AND m.id > s.movement_id), 0)
+            FROM stock_snapshot s
+            WHERE s.book_id = ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockLedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the movements as one JDBC batch.
+     *
+     * @return the highest id given to them
+     */
+    public long insert(List<StockMovement> movements) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        StockMovement movement = movements.get(i);
+                        ps.setLong(1, movement.getBookId());
+                        ps.setInt(2, movement.getDelta());
+                        ps.setString(3, movement.getType().name());
+                        if (movement.getOrderId() == null) {
+                            ps.setNull(4, Types.BIGINT);
+                        } else {
+                            ps.setLong(4, movement.getOrderId());
+                        }
+                        ps.setTimestamp(5, Timestamp.valueOf(movement.getCreatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return movements.size();
+                    }
+                }, keys);
+        long maxId = 0;
+        for (Map<String, Object> key : keys.getKeyList()) {
+            maxId = Math.max(maxId, ((Number) key.values().iterator().next()).longValue());
+        }
+        return maxId;
+    }
+
+    public long findMaxMovementId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM stock_movement", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    public int openSnapshots(LocalDateTime now) {
+        return jdbcTemplate.update(OPEN_SQL, Timestamp.valueOf(now));
+    }
+
+    /**
+     * Adds the movements up to {@code upTo} to the snapshots; callers must make sure no
+     * movement at or below it is still uncommitted.
+     *
+     * @return number of snapshots moved forward
+     */
+    public int compact(long upTo, LocalDateTime now) {
+        return jdbcTemplate.update(COMPACT_SQL, upTo, upTo, Timestamp.valueOf(now), upTo);
+    }
+
+    /**
+     * Latest snapshot plus the movements after it, or null if the book has no snapshot yet.
+     */
+    public Long findStock(Long bookId) {
+        List<Long> stock = jdbcTemplate.queryForList(STOCK_SQL, Long.class, bookId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bookstore.repository;
+
+import com.example.bookstore.model.StockMovement;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * Reads of the stock ledger; movements are appended through {@link StockLedgerRepository}.
+ */
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+    List<StockMovement> findByBookIdOrderByIdDesc(Long bookId, Limit limit);
+}
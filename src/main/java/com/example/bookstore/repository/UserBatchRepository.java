@@ -0,0 +1,81 @@
+package com.example.bookstore.repository;
+
+import com.example.bookstore.model.AppUser;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Inserts users with plain JDBC batches for bulk provisioning. The inserts bypass Hibernate,
+ * so callers must evict whatever caches users by name.
+ * <p>
+ * Ids are drawn from {@code app_user_seq} the way Hibernate's pooled optimizer reads it: a
+ * sequence value {@code v} reserves the ids {@code v - 49} to {@code v}, so ids given out here
+ * never collide with the ones Hibernate hands out.
+ */
+@Repository
+public class UserBatchRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO app_user (id, username, password, email, role) VALUES (?, ?, ?, ?, ?)";
+    private static final String NEXT_ID_SQL = "SELECT NEXT VALUE FOR app_user_seq";
+    // allocationSize of AppUser's generator
+    private static final int ID_BLOCK = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the users as one JDBC batch in the caller's transaction. Users without an id
+     * get one; ids already set are kept, so a failed batch can be retried row by row.
+     */
+    public void insertAll(List<AppUser> users) {
+        assignIds(users);
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bind(ps, users.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return users.size();
+            }
+        });
+    }
+
+    public void insert(AppUser user) {
+        assignIds(List.of(user));
+        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, user));
+    }
+
+    private void assignIds(List<AppUser> users) {
+        long next = 0;
+        long last = -1;
+        for (AppUser user : users) {
+            if (user.getId() != null) {
+                continue;
+            }
+            if (next > last) {
+                last = jdbcTemplate.queryForObject(NEXT_ID_SQL, Long.class);
+                // the first value of a new sequence reserves only itself
+                next = Math.max(last - ID_BLOCK + 1, 1);
+            }
+            user.setId(next++);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, AppUser user) throws SQLException {
+        ps.setLong(1, user.getId());
+        ps.setString(2, user.getUsername());
+        ps.setString(3, user.getPassword());
+        ps.setString(4, user.getEmail());
+        ps.setString(5, user.getRole().name());
+    }
+}
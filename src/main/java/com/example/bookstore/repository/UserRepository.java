@@ -1,13 +1,26 @@
 package com.example.bookstore.repository;
 
 import com.example.bookstore.model.AppUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 // @Repository is optional for Spring Data repositories - Spring will create the bean automatically
 @Repository
 public interface UserRepository extends JpaRepository<AppUser, Long> {
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "users-by-username")
+    })
     Optional<AppUser> findByUsername(String username);
+
+    @Query("SELECT u.username FROM AppUser u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(Collection<String> usernames);
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Book;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Reads a publisher feed one line at a time, as CSV with a header row naming the
+ * {@code title, author, price, category, stock} columns (in any order, other columns are
+ * ignored) or as newline-delimited JSON books. A line that cannot be parsed becomes a
+ * {@link Row} with an error instead of stopping the feed; blank lines are skipped.
+ * CSV fields may be quoted with {@code "} and escape it as {@code ""}, but can not span lines.
+ */
+public class BookFeedReader implements Iterator<BookFeedReader.Row> {
+    public enum Format {CSV, NDJSON}
+
+    private static final List<String> CSV_COLUMNS = List.of("title", "author", "price", "category", "stock");
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectReader jsonReader;
+    // position of each of CSV_COLUMNS in the header, -1 if absent
+    private final int[] columns = new int[CSV_COLUMNS.size()];
+    private int lineNumber;
+    private Row next;
+
+    public BookFeedReader(BufferedReader reader, Format format, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.format = format;
+        this.jsonReader = objectMapper.readerFor(Book.class);
+        if (format == Format.CSV) {
+            readHeader();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readRow();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    private Row readRow() {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        try {
+            return new Row(lineNumber, format == Format.CSV ? parseCsv(line) : parseJson(line), null);
+        } catch (IllegalArgumentException e) {
+            return new Row(lineNumber, null, e.getMessage());
+        }
+    }
+
+    private void readHeader() {
+        String header = readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        List<String> names = splitCsv(header).stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+        }
+        if (columns[0] < 0 || columns[1] < 0 || columns[2] < 0 || columns[4] < 0) {
+            throw new IllegalArgumentException("CSV header must name the title, author, price and stock columns");
+        }
+    }
+
+    private Book parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        Book book = new Book();
+        book.setTitle(field(fields, 0));
+        book.setAuthor(field(fields, 1));
+        book.setPrice(number(field(fields, 2), "price", Double::parseDouble));
+        book.setCategory(field(fields, 3));
+        book.setStock(number(field(fields, 4), "stock", Integer::parseInt));
+        return book;
+    }
+
+    private Book parseJson(String line) {
+        try {
+            return jsonReader.readValue(line);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private String field(List<String> fields, int column) {
+        int index = columns[column];
+        if (index < 0) {
+            return null;
+        }
+        if (index >= fields.size()) {
+            throw new IllegalArgumentException("Expected at least " + (index + 1) + " fields, got " + fields.size());
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static <T> T number(String value, String name, Function<String, T> parser) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + ": value is required");
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + ": not a number");
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private String readLine() {
+        try {
+            String line = reader.readLine();
+            if (line != null) {
+                lineNumber++;
+                // byte order mark, as spreadsheet exports write it
+                if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A parsed book, or the reason the line could not be parsed; {@code line} counts from 1.
+     */
+    public record Row(int line, Book book, String error) {
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.StockMovement;
+import com.example.bookstore.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads a catalog feed into the {@code book} table. Rows are validated with the constraints
+ * of {@link Book} and upserted by title and author in chunks of {@code batch-size}, one
+ * transaction each: the books of a chunk are looked up and locked with one query, new ones
+ * get their ids from the pooled {@code book_seq} and are inserted as JDBC batches, changed
+ * ones are updated the same way. Stock changes are recorded in the {@link StockLedger} like
+ * {@link BookService#updateStock} does, and the search index is updated once a chunk commits.
+ * Like there, each chunk runs while the {@link Inventory} is settled, so sales not yet written
+ * to {@code book.stock} are not subtracted again from imported stock.
+ * <p>
+ * The lock can not stop another import or {@link BookService#addBook} from inserting one of
+ * the chunk's new books meanwhile; the unique title and author constraint then rejects the
+ * chunk, and it is written again (three attempts in all), now updating the book the other
+ * writer created.
+ * <p>
+ * Only the current chunk is held in memory, plus at most {@code max-errors} reported errors.
+ * Chunks that committed stay when a later one fails.
+ */
+@Service
+public class BookImportService {
+    private static final Logger log = LoggerFactory.getLogger(BookImportService.class);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final StockLedger stockLedger;
+    private final Inventory inventory;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public BookImportService(BookRepository bookRepository, BookSearchIndex searchIndex, StockLedger stockLedger,
+                             Inventory inventory, Validator validator, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${bookstore.books.import.batch-size:500}") int batchSize,
+                             @Value("${bookstore.books.import.max-errors:1000}") int maxErrors) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.stockLedger = stockLedger;
+        this.inventory = inventory;
+        this.validator = validator;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportResult importBooks(Iterator<BookFeedReader.Row> rows) {
+        long started = System.nanoTime();
+        List<RowError> errors = new ArrayList<>();
+        List<Book> chunk = new ArrayList<>(batchSize);
+        int received = 0;
+        int failed = 0;
+        Counts counts = new Counts();
+        while (rows.hasNext()) {
+            BookFeedReader.Row row = rows.next();
+            received++;
+            String error = row.error() != null ? row.error() : violation(row.book());
+            if (error != null) {
+                failed++;
+                if (errors.size() < maxErrors) {
+                    errors.add(new RowError(row.line(), error));
+                }
+                continue;
+            }
+            chunk.add(row.book());
+            if (chunk.size() == batchSize) {
+                upsert(chunk, counts);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            upsert(chunk, counts);
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        long rowsPerSecond = received * 1000L / Math.max(elapsedMillis, 1);
+        log.info("Imported {} books ({} created, {} updated, {} failed) in {} ms, {} rows/s",
+                received, counts.created, counts.updated, failed, elapsedMillis, rowsPerSecond);
+        return new ImportResult(received, counts.created, counts.updated, failed, elapsedMillis, rowsPerSecond, errors);
+    }
+
+    private String violation(Book book) {
+        return validator.validate(book).stream()
+                .min(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                .map(ConstraintViolation::getMessage)
+                .orElse(null);
+    }
+
+    private void upsert(List<Book> chunk, Counts counts) {
+        for (int attempt = 1; ; attempt++) {
+            Counts chunkCounts = new Counts();
+            List<Book> written;
+            try {
+                written = inventory.whileSettled(() -> transactionTemplate.execute(status -> write(chunk, chunkCounts)));
+            } catch (DataIntegrityViolationException e) {
+                // inside a caller's transaction the failure has marked it for rollback already
+                if (attempt == MAX_ATTEMPTS || TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw e;
+                }
+                log.debug("Chunk of {} books clashed with a concurrent insert, writing it again: {}",
+                        chunk.size(), e.getMostSpecificCause().getMessage());
+                continue;
+            }
+            counts.created += chunkCounts.created;
+            counts.updated += chunkCounts.updated;
+            written.forEach(searchIndex::index);
+            return;
+        }
+    }
+
+    private List<Book> write(List<Book> chunk, Counts counts) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        Set<String> titles = new HashSet<>();
+        chunk.forEach(book -> titles.add(book.getTitle()));
+        Map<Key, Book> books = new LinkedHashMap<>();
+        for (Book existing : bookRepository.findByTitleInForUpdate(titles)) {
+            books.putIfAbsent(Key.of(existing), existing);
+        }
+        Set<Key> created = new HashSet<>();
+        // stock of the existing books before the chunk changed them
+        Map<Key, Integer> stockBefore = new HashMap<>();
+        for (Book row : chunk) {
+            Key key = Key.of(row);
+            Book book = books.get(key);
+            if (book == null) {
+                book = new Book();
+                book.setTitle(row.getTitle());
+                book.setAuthor(row.getAuthor());
+                copy(row, book);
+                entityManager.persist(book);
+                books.put(key, book);
+                created.add(key);
+                counts.created++;
+            } else {
+                if (!created.contains(key)) {
+                    stockBefore.putIfAbsent(key, book.getStock());
+                }
+                copy(row, book);
+                counts.updated++;
+            }
+        }
+        // through the repository, so a duplicate surfaces as DataIntegrityViolationException
+        bookRepository.flush();
+
+        List<StockMovement> movements = new ArrayList<>();
+        List<Book> changed = new ArrayList<>(created.size() + stockBefore.size());
+        for (Map.Entry<Key, Book> entry : books.entrySet()) {
+            Book book = entry.getValue();
+            if (created.contains(entry.getKey())) {
+                if (book.getStock() > 0) {
+                    movements.add(new StockMovement(book.getId(), book.getStock(), StockMovement.Type.RESTOCK, null));
+                }
+            } else if (stockBefore.containsKey(entry.getKey())) {
+                int delta = book.getStock() - stockBefore.get(entry.getKey());
+                if (delta != 0) {
+                    movements.add(new StockMovement(book.getId(), delta, StockMovement.Type.CORRECTION, null));
+                }
+            } else {
+                continue;
+            }
+            changed.add(book);
+        }
+        stockLedger.record(movements);
+        return changed;
+    }
+
+    private static void copy(Book from, Book to) {
+        to.setPrice(from.getPrice());
+        to.setCategory(from.getCategory());
+        to.setStock(from.getStock());
+    }
+
+    private static final class Counts {
+        int created;
+        int updated;
+    }
+
+    private record Key(String title, String author) {
+        static Key of(Book book) {
+            return new Key(book.getTitle(), book.getAuthor());
+        }
+    }
+
+    /**
+     * Outcome of an import; {@code errors} lists the first {@code max-errors} of the
+     * {@code failed} rows.
+     */
+    public record ImportResult(int received, int created, int updated, int failed,
+                               long elapsedMillis, long rowsPerSecond, List<RowError> errors) {
+    }
+
+    public record RowError(int line, String error) {
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory inverted trigram index over book titles and authors.
+ * Writers are serialized, readers are lock-free; a search intersects the posting
+ * lists of the query trigrams and then verifies candidates against the stored document,
+ * so results keep the substring semantics of the old LIKE query.
+ * <p>
+ * Only what matching needs (title and author) is indexed and a search returns book ids;
+ * stock and price change without the index hearing of it, so callers load the rows.
+ * {@link #rebuild} builds a new index aside and swaps it in, so searches running meanwhile
+ * see the old one in full.
+ */
+@Component
+public class BookSearchIndex {
+    public static final int GRAM_SIZE = 3;
+
+    private static final double TITLE_WEIGHT = 1.0;
+    private static final double AUTHOR_WEIGHT = 0.8;
+
+    private volatile Index index = new Index();
+
+    public synchronized void rebuild(Iterable<Book> books) {
+        Index rebuilt = new Index();
+        for (Book book : books) {
+            rebuilt.add(book);
+        }
+        index = rebuilt;
+    }
+
+    /**
+     * Adds the book to the index or replaces its previous version.
+     */
+    public synchronized void index(Book book) {
+        index.add(book);
+    }
+
+    public synchronized void remove(Long bookId) {
+        index.remove(bookId);
+    }
+
+    public int size() {
+        return index.documents.size();
+    }
+
+    /**
+     * Returns the ids of up to {@code limit} books whose title or author contains {@code query}
+     * (case-insensitive), best matches first. Queries shorter than {@link #GRAM_SIZE}
+     * cannot be answered from the index and must be handled by the caller.
+     */
+    public List<Long> search(String query, int limit) {
+        Index current = index;
+        String needle = normalize(query);
+        if (needle.length() < GRAM_SIZE) {
+            throw new IllegalArgumentException("Search query must have at least " + GRAM_SIZE + " characters");
+        }
+
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<Long> ids = current.postings.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        PriorityQueue<ScoredDocument> top = new PriorityQueue<>(ScoredDocument.ORDER);
+        Set<Long> smallest = lists.get(0);
+        for (Long id : smallest) {
+            if (!containsInAll(lists, id)) {
+                continue;
+            }
+            Document document = current.documents.get(id);
+            if (document == null) {
+                continue;
+            }
+            double score = score(document, needle);
+            if (score <= 0) {
+                continue;
+            }
+            top.offer(new ScoredDocument(document.id(), score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Long> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().id());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static boolean containsInAll(List<Set<Long>> lists, Long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double score(Document document, String needle) {
+        return Math.max(TITLE_WEIGHT * fieldScore(document.title(), needle),
+                AUTHOR_WEIGHT * fieldScore(document.author(), needle));
+    }
+
+    /**
+     * Exact match scores highest, then prefix and word-start matches, with a bonus when the
+     * match ends on a word boundary; within each tier a match covering more of the field ranks higher.
+     */
+    private static double fieldScore(String field, String needle) {
+        int position = field.indexOf(needle);
+        if (position < 0) {
+            return 0;
+        }
+        double coverage = (double) needle.length() / field.length();
+        if (position == 0 && field.length() == needle.length()) {
+            return 4 + coverage;
+        }
+        double score = 1 + coverage;
+        if (position == 0) {
+            score += 1;
+        } else if (!Character.isLetterOrDigit(field.charAt(position - 1))) {
+            score += 0.5;
+        }
+        int end = position + needle.length();
+        if (end == field.length() || !Character.isLetterOrDigit(field.charAt(end))) {
+            score += 0.5;
+        }
+        return score;
+    }
+
+    private static Set<String> grams(Document document) {
+        Set<String> grams = new HashSet<>(grams(document.title()));
+        grams.addAll(grams(document.author()));
+        return grams;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Postings and documents of one build; mutated only under the index's lock.
+     */
+    private static final class Index {
+        final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+        void add(Book book) {
+            if (book.getId() == null) {
+                throw new IllegalArgumentException("Only persisted books can be indexed");
+            }
+            remove(book.getId());
+            Document document = new Document(book.getId(), normalize(book.getTitle()), normalize(book.getAuthor()));
+            documents.put(document.id(), document);
+            for (String gram : grams(document)) {
+                postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(document.id());
+            }
+        }
+
+        void remove(Long bookId) {
+            Document previous = documents.remove(bookId);
+            if (previous == null) {
+                return;
+            }
+            for (String gram : grams(previous)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(bookId);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    // title and author, normalized
+    private record Document(Long id, String title, String author) {
+    }
+
+    private record ScoredDocument(Long id, double score) {
+        // min-heap order: weakest match on top so it is evicted first
+        static final Comparator<ScoredDocument> ORDER = Comparator.comparingDouble(ScoredDocument::score)
+                .thenComparing(ScoredDocument::id, Comparator.reverseOrder());
+    }
+}
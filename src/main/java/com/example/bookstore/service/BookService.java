@@ -1,46 +1,180 @@
 package com.example.bookstore.service;
 
 import com.example.bookstore.model.Book;
+import com.example.bookstore.model.StockMovement;
 import com.example.bookstore.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class BookService {
+    private static final Logger log = LoggerFactory.getLogger(BookService.class);
+
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+
     private final BookRepository bookRepository;
+    private final BookSearchIndex searchIndex;
+    private final EntityManager entityManager;
+    private final StockLedger stockLedger;
+    private final Inventory inventory;
+    private final TransactionTemplate transactionTemplate;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, BookSearchIndex searchIndex, EntityManager entityManager,
+                       StockLedger stockLedger, Inventory inventory, PlatformTransactionManager transactionManager) {
         this.bookRepository = bookRepository;
+        this.searchIndex = searchIndex;
+        this.entityManager = entityManager;
+        this.stockLedger = stockLedger;
+        this.inventory = inventory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        searchIndex.rebuild(bookRepository.findAll());
+        log.info("Search index built for {} books", searchIndex.size());
     }
 
+    /**
+     * @throws org.springframework.dao.DataIntegrityViolationException if a book with the same
+     *         title and author exists (HTTP 409)
+     */
+    @Transactional
     public Book addBook(Book book) {
-        return bookRepository.save(book);
+        // flushed here, so a duplicate fails before the ledger and the index see the book
+        Book saved = bookRepository.saveAndFlush(book);
+        if (saved.getStock() > 0) {
+            stockLedger.record(new StockMovement(saved.getId(), saved.getStock(), StockMovement.Type.RESTOCK, null));
+        }
+        searchIndex.index(saved);
+        return saved;
     }
 
     public List<Book> getAllBooks() {
         return bookRepository.findAll();
     }
 
+    /**
+     * Keyset page of books ordered by id, starting after {@code afterId} (null for the first page).
+     */
+    public Slice<Book> getBooksAfter(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<Book> books = new ArrayList<>(bookRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId == null ? 0L : afterId, Limit.of(limit + 1)));
+        boolean hasNext = books.size() > limit;
+        if (hasNext) {
+            books.remove(limit);
+        }
+        return new SliceImpl<>(books, PageRequest.of(0, limit), hasNext);
+    }
+
+    /**
+     * Hands every book to {@code consumer} in id order without holding the catalog in memory:
+     * rows are read through a database cursor and detached once consumed.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<Book> consumer) {
+        try (Stream<Book> books = bookRepository.streamAllOrderedById()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+
     public List<Book> getBooksByCategory(String category) {
         return bookRepository.findByCategory(category);
     }
 
     public List<Book> searchBooks(String search) {
-        return bookRepository.findByTitleOrAuthor(search);
+        return searchBooks(search, DEFAULT_SEARCH_LIMIT);
+    }
+
+    public List<Book> searchBooks(String search, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        // Too short for a trigram lookup - fall back to the LIKE query, cut off in the database
+        if (search.trim().length() < BookSearchIndex.GRAM_SIZE) {
+            return bookRepository.findByTitleOrAuthor(search, Limit.of(limit));
+        }
+        // The index only ranks; stock and price come from the current rows
+        List<Long> ids = searchIndex.search(search, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllById(ids)) {
+            books.put(book.getId(), book);
+        }
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     public void deleteBook(Long id) {
         bookRepository.deleteById(id);
+        searchIndex.remove(id);
     }
 
+    /**
+     * Sets the stock to an absolute value, e.g. after a stock count; the difference is
+     * recorded as a correction. Runs while the inventory is settled, so sales that committed
+     * but are not yet written to {@code book.stock} are neither subtracted again from the new
+     * value nor missing from the correction.
+     */
     public Book updateStock(Long bookId, int stock) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
         if (stock < 0) {
             throw new IllegalArgumentException("Stock cannot be negative");
         }
-        book.setStock(stock);
-        return bookRepository.save(book);
+        Book saved = inventory.whileSettled(() -> transactionTemplate.execute(status -> {
+            Book book = bookRepository.findByIdForUpdate(bookId)
+                    .orElseThrow(() -> new IllegalArgumentException("Book not found"));
+            int delta = stock - book.getStock();
+            book.setStock(stock);
+            Book updated = bookRepository.save(book);
+            if (delta != 0) {
+                stockLedger.record(new StockMovement(bookId, delta, StockMovement.Type.CORRECTION, null));
+            }
+            return updated;
+        }));
+        searchIndex.index(saved);
+        return saved;
+    }
+
+    @Transactional
+    public Book restock(Long bookId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        Book book = bookRepository.findByIdForUpdate(bookId)
+                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
+        book.setStock(book.getStock() + quantity);
+        Book saved = bookRepository.save(book);
+        stockLedger.record(new StockMovement(bookId, quantity, StockMovement.Type.RESTOCK, null));
+        searchIndex.index(saved);
+        return saved;
     }
 }
@@ -4,34 +4,33 @@ import com.example.bookstore.config.SecurityUtils;
 import com.example.bookstore.model.AppUser;
 import com.example.bookstore.model.Book;
 import com.example.bookstore.model.Cart;
-import com.example.bookstore.model.CartItem;
 import com.example.bookstore.repository.BookRepository;
-import com.example.bookstore.repository.CartRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class CartService {
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
     private final BookRepository bookRepository;
     private final SecurityUtils securityUtils;
 
-    public CartService(CartRepository cartRepository, BookRepository bookRepository, SecurityUtils securityUtils) {
-        this.cartRepository = cartRepository;
+    public CartService(CartStore cartStore, BookRepository bookRepository, SecurityUtils securityUtils) {
+        this.cartStore = cartStore;
         this.bookRepository = bookRepository;
         this.securityUtils = securityUtils;
     }
 
     public Cart getCart() {
-        AppUser user = securityUtils.getCurrentUser();
-        return cartRepository.findByUserId(user.getId())
-                .orElseGet(() -> {
-                    Cart cart = new Cart();
-                    cart.setUser(user);
-                    return cartRepository.save(cart);
-                });
+        return getCart(securityUtils.getCurrentUser());
+    }
+
+    public Cart getCart(AppUser user) {
+        return cartStore.get(user);
     }
 
     @Transactional
@@ -39,26 +38,13 @@ public class CartService {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Quantity must be positive");
         }
-        Cart cart = getCart();
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found"));
         if (book.getStock() < quantity) {
             throw new IllegalStateException("Not enough stock for book: " + book.getTitle());
         }
 
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getBook().getId().equals(bookId))
-                .findFirst();
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + quantity);
-        } else {
-            CartItem item = new CartItem();
-            item.setBook(book);
-            item.setQuantity(quantity);
-            cart.getItems().add(item);
-        }
-        return cartRepository.save(cart);
+        return cartStore.update(securityUtils.getCurrentUser(), cart -> cart.addOrIncrement(book, quantity));
     }
 
     @Transactional
@@ -66,32 +52,92 @@ public class CartService {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Quantity must be positive");
         }
-        Cart cart = getCart();
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found"));
         if (book.getStock() < quantity) {
             throw new IllegalStateException("Not enough stock for book: " + book.getTitle());
         }
 
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getBook().getId().equals(bookId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Book not in cart"));
-        item.setQuantity(quantity);
-        return cartRepository.save(cart);
+        return cartStore.update(securityUtils.getCurrentUser(), cart -> cart.setQuantity(bookId, quantity));
+    }
+
+    /**
+     * Sets the quantity of every given book in one transaction; a quantity of 0 removes the line.
+     * All referenced books are loaded with a single query and validated before anything changes,
+     * so either every line is applied or none is.
+     */
+    @Transactional
+    public Cart applyChanges(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            throw new IllegalArgumentException("No cart changes given");
+        }
+        Set<Long> wanted = new HashSet<>();
+        quantities.forEach((bookId, quantity) -> {
+            if (bookId == null) {
+                throw new IllegalArgumentException("Book id is required");
+            }
+            if (quantity == null || quantity < 0) {
+                throw new IllegalArgumentException("Quantity must not be negative");
+            }
+            if (quantity > 0) {
+                wanted.add(bookId);
+            }
+        });
+
+        Map<Long, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllById(wanted)) {
+            books.put(book.getId(), book);
+        }
+        for (Long bookId : wanted) {
+            Book book = books.get(bookId);
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found: " + bookId);
+            }
+            if (book.getStock() < quantities.get(bookId)) {
+                throw new IllegalStateException("Not enough stock for book: " + book.getTitle());
+            }
+        }
+
+        return cartStore.update(securityUtils.getCurrentUser(), cart -> quantities.forEach((bookId, quantity) -> {
+            if (quantity == 0) {
+                cart.remove(bookId);
+            } else if (cart.findItem(bookId).isPresent()) {
+                cart.setQuantity(bookId, quantity);
+            } else {
+                cart.addOrIncrement(books.get(bookId), quantity);
+            }
+        }));
     }
 
     @Transactional
     public Cart removeFromCart(Long bookId) {
-        Cart cart = getCart();
-        cart.getItems().removeIf(item -> item.getBook().getId().equals(bookId));
-        return cartRepository.save(cart);
+        return cartStore.update(securityUtils.getCurrentUser(), cart -> cart.remove(bookId));
     }
 
     @Transactional
     public void clearCart() {
-        Cart cart = getCart();
-        cart.getItems().clear();
-        cartRepository.save(cart);
+        clearCart(securityUtils.getCurrentUser());
+    }
+
+    @Transactional
+    public void clearCart(AppUser user) {
+        cartStore.update(user, Cart::clear);
+    }
+
+    /**
+     * Takes the lines of {@code ordered}, a copy of the cart that was checked out, out of the
+     * user's cart once the order commits. Books added or quantities raised since the copy was
+     * taken stay in the cart.
+     */
+    public void removeOrdered(AppUser user, Cart ordered) {
+        Map<Long, Integer> quantities = OrderService.quantities(ordered);
+        cartStore.updateOnCommit(user, cart -> quantities.forEach((bookId, quantity) ->
+                cart.findItem(bookId).ifPresent(item -> {
+                    if (item.getQuantity() <= quantity) {
+                        cart.remove(bookId);
+                    } else {
+                        item.setQuantity(item.getQuantity() - quantity);
+                    }
+                })));
     }
 }
@@ -0,0 +1,31 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Cart;
+
+import java.util.function.Consumer;
+
+/**
+ * Where carts live between requests. Selected with {@code bookstore.cart.store}:
+ * {@code jpa} (default) saves every change immediately, {@code write-behind} keeps
+ * active carts in memory and writes them to the database in batches.
+ */
+public interface CartStore {
+
+    /**
+     * Returns the user's cart, creating an empty one if the user has none yet.
+     */
+    Cart get(AppUser user);
+
+    /**
+     * Applies {@code mutation} to the user's cart and returns the cart as it is afterwards.
+     * If the mutation throws, the cart is left as the mutation left it and nothing is saved.
+     */
+    Cart update(AppUser user, Consumer<Cart> mutation);
+
+    /**
+     * Applies {@code mutation} once the caller's transaction commits, and not at all if it
+     * rolls back. Without a transaction the mutation is applied immediately.
+     */
+    void updateOnCommit(AppUser user, Consumer<Cart> mutation);
+}
@@ -0,0 +1,275 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.OverloadedException;
+import com.example.bookstore.config.SecurityUtils;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entry point for placing an order. With {@code bookstore.checkout.batch.enabled} checkouts
+ * arriving within {@code window} of each other (at most {@code max-size}) are placed in a
+ * single transaction: stock is allocated to the orders greedily in arrival order, orders that
+ * cannot be satisfied are rejected on their own, and the decrements of all accepted orders are
+ * merged per book and taken from the {@link Inventory} at once. If that is rejected because stock
+ * changed underneath the batch, or the batch fails for any other reason, every order of the
+ * batch is retried on its own through {@link OrderService#createOrder(AppUser, Cart)}, from the
+ * same copy of the cart. The ordered lines leave the carts only once their transaction commits.
+ * <p>
+ * Without batching every call goes straight to {@link OrderService#createOrder(AppUser)}, and so
+ * does a call made inside a transaction (an idempotent checkout), whose order has to commit
+ * with the caller's work.
+ * Callers block until their order is committed or rejected, no transaction is held while waiting.
+ * A checkout that is not picked up within {@code timeout} is withdrawn and rejected as overload;
+ * one that is already being placed is waited for once more.
+ */
+@Service
+public class CheckoutBatcher {
+    private static final Logger log = LoggerFactory.getLogger(CheckoutBatcher.class);
+
+    private final OrderService orderService;
+    private final CartService cartService;
+    private final Inventory inventory;
+    private final SecurityUtils securityUtils;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxSize;
+    private final long timeoutNanos;
+    private final BlockingQueue<Request> queue;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private volatile Thread worker;
+
+    public CheckoutBatcher(OrderService orderService, CartService cartService, Inventory inventory,
+                           SecurityUtils securityUtils, PlatformTransactionManager transactionManager,
+                           @Value("${bookstore.checkout.batch.enabled:false}") boolean enabled,
+                           @Value("${bookstore.checkout.batch.window:5ms}") Duration window,
+                           @Value("${bookstore.checkout.batch.max-size:50}") int maxSize,
+                           @Value("${bookstore.checkout.batch.queue-capacity:1000}") int queueCapacity,
+                           @Value("${bookstore.checkout.batch.timeout:10s}") Duration timeout) {
+        this.orderService = orderService;
+        this.cartService = cartService;
+        this.inventory = inventory;
+        this.securityUtils = securityUtils;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        this.timeoutNanos = timeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            worker = new Thread(this::run, "checkout-batcher");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Places an order for the current user's cart.
+     *
+     * @throws IllegalStateException if the cart is empty or cannot be satisfied
+     * @throws OverloadedException if too many checkouts are waiting for a batch
+     */
+    public Order createOrder() {
+        AppUser user = securityUtils.getCurrentUser();
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return orderService.createOrder(user);
+        }
+        Cart cart = cartService.getCart(user);
+        if (cart.getItems().isEmpty()) {
+            throw new IllegalStateException("Cart is empty");
+        }
+        Request request = new Request(user, cart, new CompletableFuture<>(), new AtomicBoolean());
+        if (!queue.offer(request)) {
+            throw new OverloadedException("Checkout queue is full, try again later");
+        }
+        try {
+            try {
+                return await(request);
+            } catch (TimeoutException e) {
+                if (request.taken().compareAndSet(false, true)) {
+                    queue.remove(request);
+                    throw new OverloadedException("Checkout was not picked up in time, try again later");
+                }
+                // the worker has it and completes it whatever happens
+                return await(request);
+            }
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Checkout is taking too long, check your orders before retrying");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for checkout", e);
+        }
+    }
+
+    private Order await(Request request) throws TimeoutException, InterruptedException {
+        try {
+            return request.result().get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public long batches() {
+        return batches.get();
+    }
+
+    public long fallbacks() {
+        return fallbacks.get();
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxSize) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // requests whose caller gave up are dropped
+                batch.removeIf(request -> !request.taken().compareAndSet(false, true));
+                if (!batch.isEmpty()) {
+                    process(batch);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            batch.addAll(queue);
+            queue.clear();
+            // nothing will place these any more
+            batch.forEach(request -> request.result().completeExceptionally(
+                    new IllegalStateException("Checkout was cancelled, try again")));
+        }
+    }
+
+    void process(List<Request> batch) {
+        try {
+            Map<Request, Order> accepted = new IdentityHashMap<>();
+            Map<Request, RuntimeException> rejected = new IdentityHashMap<>();
+            try {
+                transactionTemplate.executeWithoutResult(status -> placeBatch(batch, accepted, rejected));
+                batches.incrementAndGet();
+            } catch (RuntimeException e) {
+                log.debug("Checkout batch of {} failed, placing orders one by one: {}", batch.size(), e.getMessage());
+                fallbacks.incrementAndGet();
+                for (Request request : batch) {
+                    try {
+                        request.result().complete(orderService.createOrder(request.user(), request.cart()));
+                    } catch (RuntimeException individual) {
+                        request.result().completeExceptionally(individual);
+                    }
+                }
+                return;
+            }
+            accepted.forEach((request, order) -> request.result().complete(order));
+            rejected.forEach((request, error) -> request.result().completeExceptionally(error));
+        } finally {
+            // an Error must not leave callers waiting
+            for (Request request : batch) {
+                request.result().completeExceptionally(new IllegalStateException("Checkout failed, try again"));
+            }
+        }
+    }
+
+    private void placeBatch(List<Request> batch, Map<Request, Order> accepted, Map<Request, RuntimeException> rejected) {
+        Set<Long> bookIds = new HashSet<>();
+        for (Request request : batch) {
+            bookIds.addAll(OrderService.quantities(request.cart()).keySet());
+        }
+        Map<Long, Book> books = orderService.findBooks(bookIds);
+        Map<Long, Integer> remaining = new HashMap<>();
+        books.forEach((id, book) -> remaining.put(id, book.getStock()));
+
+        Map<Long, Integer> merged = new HashMap<>();
+        List<Order> orders = new ArrayList<>();
+        for (Request request : batch) {
+            try {
+                Map<Long, Integer> quantities = OrderService.quantities(request.cart());
+                Order order = OrderService.newOrder(request.user(), request.cart(), books);
+                for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+                    if (remaining.get(line.getKey()) < line.getValue()) {
+                        throw new IllegalStateException("Not enough stock for book: " + books.get(line.getKey()).getTitle());
+                    }
+                }
+                quantities.forEach((id, quantity) -> {
+                    remaining.merge(id, -quantity, Integer::sum);
+                    merged.merge(id, quantity, Integer::sum);
+                });
+                orders.add(order);
+                accepted.put(request, order);
+            } catch (IllegalStateException e) {
+                rejected.put(request, e);
+            }
+        }
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        List<Long> conflicts = inventory.take(merged);
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("Stock changed during checkout batch for books " + conflicts);
+        }
+        orderService.saveAll(orders);
+        for (Request request : accepted.keySet()) {
+            cartService.removeOrdered(request.user(), request.cart());
+        }
+    }
+
+    /**
+     * A queued checkout; {@code taken} is set by whichever of the worker and the timed-out
+     * caller claims it first.
+     */
+    record Request(AppUser user, Cart cart, CompletableFuture<Order> result, AtomicBoolean taken) {}
+}
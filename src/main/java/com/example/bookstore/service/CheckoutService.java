@@ -0,0 +1,142 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.OverloadedException;
+import com.example.bookstore.config.SecurityUtils;
+import com.example.bookstore.model.Order;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs checkouts off the request thread. Submissions go to a bounded queue drained by a
+ * fixed number of workers, so the database sees at most {@code workers} concurrent checkouts
+ * however many requests arrive; when the queue is full the submission is rejected with
+ * {@link OverloadedException} (HTTP 429) instead of piling up.
+ * <p>
+ * A user has at most one checkout in flight; submitting again while it is queued returns
+ * the same ticket. Finished tickets are kept for {@code ticket-ttl} so clients can poll them.
+ * Only created with {@code bookstore.checkout.async=true}.
+ */
+@Service
+@ConditionalOnProperty(name = "bookstore.checkout.async", havingValue = "true")
+public class CheckoutService {
+    private static final Logger log = LoggerFactory.getLogger(CheckoutService.class);
+
+    private final CheckoutBatcher checkoutBatcher;
+    private final CartService cartService;
+    private final SecurityUtils securityUtils;
+    private final Duration ticketTtl;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, CheckoutTicket> tickets = new ConcurrentHashMap<>();
+    private final Map<Long, CheckoutTicket> inFlight = new ConcurrentHashMap<>();
+
+    public CheckoutService(CheckoutBatcher checkoutBatcher, CartService cartService, SecurityUtils securityUtils,
+                           @Value("${bookstore.checkout.workers:4}") int workers,
+                           @Value("${bookstore.checkout.queue-capacity:100}") int queueCapacity,
+                           @Value("${bookstore.checkout.ticket-ttl:10m}") Duration ticketTtl) {
+        this.checkoutBatcher = checkoutBatcher;
+        this.cartService = cartService;
+        this.securityUtils = securityUtils;
+        this.ticketTtl = ticketTtl;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "checkout-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Validates the current user's cart and queues its checkout.
+     *
+     * @throws IllegalStateException if the cart is empty
+     * @throws OverloadedException if the checkout queue is full
+     */
+    public CheckoutTicket submit() {
+        Long userId = securityUtils.getCurrentUserId();
+        CheckoutTicket pending = inFlight.get(userId);
+        if (pending != null) {
+            return pending;
+        }
+        if (cartService.getCart().getItems().isEmpty()) {
+            throw new IllegalStateException("Cart is empty");
+        }
+
+        CheckoutTicket ticket = new CheckoutTicket(UUID.randomUUID().toString(), userId);
+        CheckoutTicket raced = inFlight.putIfAbsent(userId, ticket);
+        if (raced != null) {
+            return raced;
+        }
+        tickets.put(ticket.getId(), ticket);
+        try {
+            executor.execute(new DelegatingSecurityContextRunnable(() -> process(ticket)));
+        } catch (RejectedExecutionException e) {
+            tickets.remove(ticket.getId());
+            inFlight.remove(userId, ticket);
+            throw new OverloadedException("Checkout queue is full, try again later", e);
+        }
+        return ticket;
+    }
+
+    /**
+     * Returns the ticket if it exists and belongs to the current user.
+     */
+    public CheckoutTicket getTicket(String id) {
+        CheckoutTicket ticket = tickets.get(id);
+        if (ticket == null || !ticket.getUserId().equals(securityUtils.getCurrentUserId())) {
+            throw new IllegalArgumentException("Checkout not found");
+        }
+        return ticket;
+    }
+
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    private void process(CheckoutTicket ticket) {
+        ticket.processing();
+        try {
+            Order order = checkoutBatcher.createOrder();
+            ticket.completed(order.getId());
+        } catch (RuntimeException e) {
+            log.debug("Checkout {} failed: {}", ticket.getId(), e.getMessage());
+            ticket.failed(e.getMessage());
+        } finally {
+            inFlight.remove(ticket.getUserId(), ticket);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.checkout.purge-interval:1m}")
+    public void purgeFinished() {
+        Instant cutoff = Instant.now().minus(ticketTtl);
+        tickets.values().removeIf(ticket -> ticket.isFinished() && ticket.getFinishedAt().isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} queued checkouts were not processed before shutdown", executor.shutdownNow().size());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.bookstore.service;
+
+import java.time.Instant;
+
+/**
+ * Progress of one asynchronous checkout. Written by the checkout worker, read by status requests.
+ */
+public class CheckoutTicket {
+    public enum Status { QUEUED, PROCESSING, COMPLETED, FAILED }
+
+    private final String id;
+    private final Long userId;
+    private final Instant createdAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Long orderId;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    public CheckoutTicket(String id, Long userId) {
+        this.id = id;
+        this.userId = userId;
+    }
+
+    void processing() {
+        status = Status.PROCESSING;
+    }
+
+    void completed(Long orderId) {
+        this.orderId = orderId;
+        this.finishedAt = Instant.now();
+        this.status = Status.COMPLETED;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public String getId() { return id; }
+    public Long getUserId() { return userId; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Status getStatus() { return status; }
+    public Long getOrderId() { return orderId; }
+    public String getError() { return error; }
+    public Instant getFinishedAt() { return finishedAt; }
+}
@@ -0,0 +1,49 @@
+package com.example.bookstore.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how far rows with increasing generated ids, written by this process in concurrent
+ * transactions, are settled: every row up to {@link #settledUpTo()} has either committed or
+ * rolled back, even though transactions may commit out of id order. A background job can then
+ * fold everything up to that id without missing a row whose transaction commits late.
+ * <p>
+ * A writer calls {@link #begin} before its rows get their ids, {@link #committed} with the
+ * highest id once they are committed, and {@link #end} when the transaction has completed.
+ */
+final class CommitWatermark {
+    // writers in progress, with the highest committed id when they began; ids allocated
+    // later are all above it
+    private final Map<Object, Long> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong committedUpTo = new AtomicLong();
+
+    void begin(Object writer) {
+        inFlight.put(writer, committedUpTo.get());
+    }
+
+    void committed(long id) {
+        committedUpTo.accumulateAndGet(id, Math::max);
+    }
+
+    void end(Object writer) {
+        inFlight.remove(writer);
+    }
+
+    /**
+     * Starts over from {@code id}; only while nothing is being written.
+     */
+    void reset(long id) {
+        inFlight.clear();
+        committedUpTo.set(id);
+    }
+
+    long settledUpTo() {
+        long upTo = committedUpTo.get();
+        for (long floor : inFlight.values()) {
+            upTo = Math.min(upTo, floor);
+        }
+        return upTo;
+    }
+}
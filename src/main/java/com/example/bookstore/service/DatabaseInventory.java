@@ -0,0 +1,26 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.repository.BookRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inventory that decrements {@code book.stock} with guarded updates in the placing transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.inventory", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventory implements Inventory {
+    private final BookRepository bookRepository;
+
+    public DatabaseInventory(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public List<Long> take(Map<Long, Integer> quantitiesByBookId) {
+        return bookRepository.decrementStock(quantitiesByBookId);
+    }
+}
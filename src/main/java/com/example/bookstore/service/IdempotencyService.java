@@ -0,0 +1,238 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.OverloadedException;
+import com.example.bookstore.config.SecurityUtils;
+import com.example.bookstore.model.IdempotencyRecord;
+import com.example.bookstore.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key} and user. The first request runs;
+ * a duplicate that arrives while it is running waits for it (up to {@code wait-timeout}), and a
+ * later duplicate gets the stored response replayed. Recent results are kept in a bounded
+ * in-memory map so replays do not touch the database; every successful response is also
+ * stored in {@code idempotency_record}, in the transaction the request runs in, so the record
+ * exists exactly when the request's changes do and deduplication survives a restart. If another
+ * instance stored the same key first, this request is rolled back and theirs is replayed.
+ * <p>
+ * Only 2xx responses are remembered. A request that failed changed nothing, so a retry
+ * simply runs again.
+ */
+@Service
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final SecurityUtils securityUtils;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final int maxEntries;
+
+    private final Map<Scope, Entry> entries = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository recordRepository, SecurityUtils securityUtils,
+                              ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                              @Value("${bookstore.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${bookstore.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                              @Value("${bookstore.idempotency.max-entries:10000}") int maxEntries) {
+        this.recordRepository = recordRepository;
+        this.securityUtils = securityUtils;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.maxEntries = maxEntries;
+    }
+
+    public ResponseEntity<?> execute(String key, Supplier<ResponseEntity<?>> request) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must have 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Scope scope = new Scope(securityUtils.getCurrentUserId(), key);
+
+        Entry mine = new Entry(new CompletableFuture<>(), System.nanoTime());
+        Entry existing;
+        while ((existing = entries.putIfAbsent(scope, mine)) != null) {
+            if (!existing.isExpired(ttl)) {
+                return replay(await(existing.response(), waitTimeout));
+            }
+            entries.remove(scope, existing);
+        }
+
+        try {
+            StoredResponse stored = find(scope);
+            if (stored != null) {
+                mine.response().complete(stored);
+                return replay(stored);
+            }
+
+            Outcome outcome;
+            try {
+                outcome = transactionTemplate.execute(status -> {
+                    ResponseEntity<?> response = request.get();
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        return new Outcome(response, null);
+                    }
+                    return new Outcome(response, store(scope, response));
+                });
+            } catch (DataIntegrityViolationException e) {
+                // another instance stored this key first, and our changes were rolled back with the record
+                StoredResponse theirs = find(scope);
+                if (theirs == null) {
+                    throw e;
+                }
+                mine.response().complete(theirs);
+                return replay(theirs);
+            }
+            if (outcome.stored() == null) {
+                entries.remove(scope, mine);
+                mine.response().complete(null);
+                return outcome.response();
+            }
+            mine.response().complete(outcome.stored());
+            if (entries.size() > maxEntries) {
+                evict();
+            }
+            return outcome.response();
+        } catch (Throwable e) {
+            // waiters get the failure, later retries run again
+            entries.remove(scope, mine);
+            mine.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private StoredResponse find(Scope scope) {
+        return recordRepository.findByUserIdAndIdempotencyKey(scope.userId(), scope.key())
+                .filter(record -> record.getCreatedAt().isAfter(LocalDateTime.now().minus(ttl)))
+                .map(record -> new StoredResponse(record.getStatus(), record.getLocation(), record.getBody()))
+                .orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${bookstore.idempotency.purge-interval:10m}")
+    public void purgeExpired() {
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(ttl));
+        int deleted = recordRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency records", deleted);
+        }
+    }
+
+    private StoredResponse store(Scope scope, ResponseEntity<?> response) {
+        String body;
+        try {
+            body = response.getBody() == null ? null : objectMapper.writeValueAsString(response.getBody());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store response for " + HEADER, e);
+        }
+        URI location = response.getHeaders().getLocation();
+        StoredResponse stored = new StoredResponse(response.getStatusCode().value(),
+                location == null ? null : location.toString(), body);
+
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(scope.userId());
+        record.setIdempotencyKey(scope.key());
+        record.setStatus(stored.status());
+        record.setLocation(stored.location());
+        record.setBody(stored.body());
+        record.setCreatedAt(LocalDateTime.now());
+        recordRepository.saveAndFlush(record);
+        return stored;
+    }
+
+    /**
+     * Drops expired entries, then the oldest completed ones, until a tenth below capacity.
+     * In-flight entries are never dropped, their waiters still need them.
+     */
+    private void evict() {
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(ttl));
+        int excess = entries.size() - (maxEntries - maxEntries / 10);
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<Scope, Entry>> completed = new ArrayList<>();
+        for (Map.Entry<Scope, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().response().isDone()) {
+                completed.add(entry);
+            }
+        }
+        completed.sort(Comparator.comparingLong(entry -> entry.getValue().createdAt()));
+        for (int i = 0; i < excess && i < completed.size(); i++) {
+            entries.remove(completed.get(i).getKey(), completed.get(i).getValue());
+        }
+    }
+
+    private static StoredResponse await(CompletableFuture<StoredResponse> response, Duration timeout) {
+        try {
+            return response.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new OverloadedException("The original request with this " + HEADER + " is still running, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("The original request with this " + HEADER + " failed", e.getCause());
+        }
+    }
+
+    private static ResponseEntity<?> replay(StoredResponse stored) {
+        if (stored == null) {
+            throw new IllegalStateException("The original request with this " + HEADER + " did not succeed, retry it");
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status())
+                .header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            builder.header(HttpHeaders.LOCATION, stored.location());
+        }
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(stored.body());
+    }
+
+    private record Scope(Long userId, String key) {}
+
+    private record Entry(CompletableFuture<StoredResponse> response, long createdAt) {
+        boolean isExpired(Duration ttl) {
+            return response.isDone() && System.nanoTime() - createdAt > ttl.toNanos();
+        }
+    }
+
+    private record StoredResponse(int status, String location, String body) {}
+
+    private record Outcome(ResponseEntity<?> response, StoredResponse stored) {}
+}
@@ -0,0 +1,28 @@
+package com.example.bookstore.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Allocates stock to orders being placed.
+ */
+public interface Inventory {
+
+    /**
+     * Takes the given quantities (book id to units) out of stock as part of the current
+     * transaction. The stock is given back if the transaction rolls back.
+     *
+     * @return ids of books without enough stock; when not empty the caller must roll back
+     */
+    List<Long> take(Map<Long, Integer> quantitiesByBookId);
+
+    /**
+     * Runs {@code action} at a point where every committed decrement is in {@code book.stock}
+     * and no checkout is committing, for readers that compare {@code book.stock} with the
+     * stock ledger. Inventories that decrement in the placing transaction just run it.
+     */
+    default <T> T whileSettled(Supplier<T> action) {
+        return action.get();
+    }
+}
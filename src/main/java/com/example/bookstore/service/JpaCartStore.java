@@ -0,0 +1,50 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.repository.CartRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+
+/**
+ * Cart store that reads and saves the cart through JPA on every call.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+    private final CartRepository cartRepository;
+
+    public JpaCartStore(CartRepository cartRepository) {
+        this.cartRepository = cartRepository;
+    }
+
+    @Override
+    public Cart get(AppUser user) {
+        return cartRepository.findByUserId(user.getId())
+                .orElseGet(() -> {
+                    Cart cart = new Cart();
+                    cart.setUser(user);
+                    return cartRepository.save(cart);
+                });
+    }
+
+    @Override
+    @Transactional
+    public Cart update(AppUser user, Consumer<Cart> mutation) {
+        Cart cart = get(user);
+        mutation.accept(cart);
+        return cartRepository.save(cart);
+    }
+
+    /**
+     * Saves within the caller's transaction, which undoes the change if it rolls back.
+     */
+    @Override
+    @Transactional
+    public void updateOnCommit(AppUser user, Consumer<Cart> mutation) {
+        update(user, mutation);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Order;
+
+import java.util.List;
+
+/**
+ * Published by {@link OrderService} inside the placing transaction, just before the orders
+ * are inserted; their ids are assigned by the time the transaction commits.
+ * <p>
+ * Deliberately not a record: listeners key in-flight placements by event identity, and
+ * orders without ids compare equal.
+ */
+public final class OrderPlacedEvent {
+    private final List<Order> orders;
+
+    public OrderPlacedEvent(List<Order> orders) {
+        this.orders = List.copyOf(orders);
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+}
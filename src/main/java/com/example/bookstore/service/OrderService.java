@@ -7,85 +7,209 @@ import com.example.bookstore.model.Cart;
 import com.example.bookstore.model.CartItem;
 import com.example.bookstore.model.Order;
 import com.example.bookstore.model.OrderItem;
+import com.example.bookstore.model.OrderSummary;
 import com.example.bookstore.repository.BookRepository;
 import com.example.bookstore.repository.OrderRepository;
-import org.springframework.data.domain.Page;
+import com.example.bookstore.repository.OrderSummaryRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OrderService {
+    // Only columns covered by idx_order_summary_user_created can be sorted on
+    private static final Set<String> SORTABLE = Set.of("createdAt");
+
     private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
     private final CartService cartService;
     private final BookRepository bookRepository;
+    private final Inventory inventory;
     private final SecurityUtils securityUtils;
+    private final ApplicationEventPublisher events;
 
-    public OrderService(OrderRepository orderRepository, CartService cartService, 
-                       BookRepository bookRepository, SecurityUtils securityUtils) {
+    public OrderService(OrderRepository orderRepository, OrderSummaryRepository orderSummaryRepository,
+                        CartService cartService, BookRepository bookRepository, Inventory inventory,
+                        SecurityUtils securityUtils, ApplicationEventPublisher events) {
         this.orderRepository = orderRepository;
+        this.orderSummaryRepository = orderSummaryRepository;
         this.cartService = cartService;
         this.bookRepository = bookRepository;
+        this.inventory = inventory;
         this.securityUtils = securityUtils;
+        this.events = events;
     }
 
     @Transactional
     public Order createOrder() {
-        AppUser user = securityUtils.getCurrentUser();
-        Cart cart = cartService.getCart();
+        return createOrder(securityUtils.getCurrentUser());
+    }
+
+    /**
+     * Places an order for everything in the user's cart in one transaction and takes the
+     * ordered lines out of the cart when it commits.
+     */
+    @Transactional
+    public Order createOrder(AppUser user) {
+        return createOrder(user, cartService.getCart(user));
+    }
 
+    /**
+     * Places an order for {@code cart}, a copy of the user's cart taken earlier, and takes
+     * exactly those lines out of the user's cart when the transaction commits.
+     */
+    @Transactional
+    public Order createOrder(AppUser user, Cart cart) {
         if (cart.getItems().isEmpty()) {
             throw new IllegalStateException("Cart is empty");
         }
 
+        // The cart may hold long-lived copies of its books (write-behind store), so price
+        // and check the order against the current rows, fetched with one query
+        Map<Long, Integer> quantities = quantities(cart);
+        Map<Long, Book> books = findBooks(quantities.keySet());
+
         for (CartItem item : cart.getItems()) {
-            Book book = item.getBook();
-            if (book.getStock() < item.getQuantity()) {
+            Book book = books.get(item.getBook().getId());
+            if (book != null && book.getStock() < item.getQuantity()) {
                 throw new IllegalStateException("Not enough stock for book: " + book.getTitle());
             }
         }
+        Order order = newOrder(user, cart, books);
+
+        decrementStock(quantities, books);
+
+        saveAll(List.of(order));
+        cartService.removeOrdered(user, cart);
+
+        return order;
+    }
+
+    /**
+     * Saves new orders together with their history rows and announces them with an
+     * {@link OrderPlacedEvent}; call inside the placing transaction.
+     */
+    void saveAll(List<Order> orders) {
+        events.publishEvent(new OrderPlacedEvent(orders));
+        orderRepository.saveAll(orders);
+        orderSummaryRepository.saveAll(orders.stream().map(OrderSummary::of).toList());
+    }
+
+    static Map<Long, Integer> quantities(Cart cart) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            quantities.merge(item.getBook().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    Map<Long, Book> findBooks(Collection<Long> ids) {
+        Map<Long, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllById(ids)) {
+            books.put(book.getId(), book);
+        }
+        return books;
+    }
 
+    /**
+     * Builds an order for the cart priced from {@code books}; stock is not checked here.
+     */
+    static Order newOrder(AppUser user, Cart cart, Map<Long, Book> books) {
         Order order = new Order();
         order.setUser(user);
         order.setCreatedAt(LocalDateTime.now());
 
-        order.setItems(cart.getItems().stream()
-                .map(item -> {
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setBook(item.getBook());
-                    orderItem.setQuantity(item.getQuantity());
-                    orderItem.setPrice(item.getBook().getPrice());
-                    return orderItem;
-                })
-                .collect(Collectors.toList()));
-
-        order.getItems().forEach(order::addItem);
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (CartItem item : cart.getItems()) {
+            Book book = books.get(item.getBook().getId());
+            if (book == null) {
+                throw new IllegalStateException("Book is no longer available: " + item.getBook().getTitle());
+            }
+            OrderItem orderItem = new OrderItem();
+            orderItem.setBook(book);
+            orderItem.setQuantity(item.getQuantity());
+            orderItem.setPrice(book.getPrice());
+            orderItems.add(orderItem);
+        }
+        order.setItems(orderItems);
 
         order.setTotalPrice(order.getItems().stream()
                 .mapToDouble(item -> item.getQuantity() * item.getPrice())
                 .sum());
+        return order;
+    }
 
-        for (CartItem item : cart.getItems()) {
-            Book book = item.getBook();
-            book.setStock(book.getStock() - item.getQuantity());
-            bookRepository.save(book);
+    /**
+     * Takes every cart line out of the {@link Inventory}. The in-memory check above only
+     * fails fast; this is what prevents oversell when checkouts race for the same book.
+     */
+    private void decrementStock(Map<Long, Integer> quantities, Map<Long, Book> books) {
+        List<Long> rejected = inventory.take(quantities);
+        if (!rejected.isEmpty()) {
+            // Rolls back the rows of this batch that were already decremented
+            throw new IllegalStateException("Not enough stock for book: " + books.get(rejected.get(0)).getTitle());
         }
+    }
 
-        orderRepository.save(order);
-        cartService.clearCart();
+    /**
+     * One page of the current user's order history, newest first ({@code desc}) or oldest first,
+     * starting after {@code after} (null for the first page). Served from the summary table in a
+     * single index range query; ties on the creation time are broken by id, so no order is
+     * skipped or repeated between pages.
+     */
+    public Slice<OrderSummary> getUserOrders(OrderCursor after, int limit, String sortBy, String direction) {
+        if (!SORTABLE.contains(sortBy)) {
+            throw new IllegalArgumentException("Orders can only be sorted by " + SORTABLE);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        Long userId = securityUtils.getCurrentUserId();
+        Limit fetch = Limit.of(limit + 1);
+        List<OrderSummary> orders;
+        if (direction.equalsIgnoreCase("asc")) {
+            orders = after == null
+                    ? orderSummaryRepository.findOldestByUserId(userId, fetch)
+                    : orderSummaryRepository.findByUserIdAfter(userId, after.createdAt(), after.id(), fetch);
+        } else {
+            orders = after == null
+                    ? orderSummaryRepository.findLatestByUserId(userId, fetch)
+                    : orderSummaryRepository.findByUserIdBefore(userId, after.createdAt(), after.id(), fetch);
+        }
+        orders = new ArrayList<>(orders);
+        boolean hasNext = orders.size() > limit;
+        if (hasNext) {
+            orders.remove(limit);
+        }
+        return new SliceImpl<>(orders, PageRequest.of(0, limit), hasNext);
+    }
 
-        return order;
+    /**
+     * The current user's order with its items and books.
+     */
+    public Order getOrder(Long id) {
+        return orderRepository.findByIdAndUserId(id, securityUtils.getCurrentUserId())
+                .orElseThrow(() -> new IllegalArgumentException("Order not found"));
     }
 
-    public Page<Order> getUserOrders(int page, int size, String sortBy, String direction) {
-        AppUser user = securityUtils.getCurrentUser();
-        Sort sort = Sort.by(direction.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
-        return orderRepository.findByUserId(user.getId(), pageable);
+    /**
+     * Position of the last order of a page, the keyset the next page continues from.
+     */
+    public record OrderCursor(LocalDateTime createdAt, Long id) {
+        public static OrderCursor of(OrderSummary order) {
+            return new OrderCursor(order.getCreatedAt(), order.getOrderId());
+        }
     }
 }
@@ -0,0 +1,211 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Order;
+import com.example.bookstore.model.OrderItem;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderRepository.BookSalesTotal;
+import com.example.bookstore.repository.SalesCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Units sold per book and revenue per category, kept in memory and updated from
+ * {@link OrderPlacedEvent}s once their transaction commits, so queries never touch the orders.
+ * Counters are {@link LongAdder}s in concurrent maps: placing orders never takes a lock and
+ * readers see the totals of every committed order applied so far.
+ * <p>
+ * A scheduled checkpoint folds the committed orders since the previous one into the
+ * {@code sales_checkpoint} table. It only advances as far as the {@link CommitWatermark},
+ * so a transaction that commits late is never skipped. On startup the totals are the
+ * checkpoint plus the orders placed after its watermark.
+ * <p>
+ * Revenue is counted in cents, rounded per order line. It is attributed to the book's
+ * category at the time of the sale, and to its current category when replayed from history.
+ */
+@Service
+public class SalesAnalytics implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(SalesAnalytics.class);
+
+    public static final String UNCATEGORIZED = "uncategorized";
+
+    private final OrderRepository orderRepository;
+    private final SalesCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, LongAdder> unitsByBook = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> revenueCentsByCategory = new ConcurrentHashMap<>();
+    private final CommitWatermark watermark = new CommitWatermark();
+    // guarded by this
+    private long checkpointedUpTo;
+
+    public SalesAnalytics(OrderRepository orderRepository,
+                          SalesCheckpointRepository checkpointRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs before the web server starts, so no order can be placed while the totals are rebuilt.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    synchronized void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            long checkpointed = checkpointRepository.findWatermark();
+            long upTo = orderRepository.findMaxId();
+            unitsByBook.clear();
+            revenueCentsByCategory.clear();
+            checkpointRepository.findUnitsByBook().forEach(this::addUnits);
+            checkpointRepository.findRevenueCentsByCategory().forEach(this::addRevenue);
+            for (BookSalesTotal total : orderRepository.sumSalesBetween(checkpointed, upTo)) {
+                addUnits(total.getBookId(), total.getUnits());
+                addRevenue(category(total.getCategory()), Math.round(total.getRevenueCents()));
+            }
+            watermark.reset(upTo);
+            checkpointedUpTo = checkpointed;
+            log.info("Sales analytics rebuilt from checkpoint at order {} and orders up to {}", checkpointed, upTo);
+        });
+    }
+
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        // Without a transaction the completion listener would never run and the entry would
+        // hold the checkpoint back forever
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            watermark.begin(event);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderCommitted(OrderPlacedEvent event) {
+        long maxId = 0;
+        for (Order order : event.getOrders()) {
+            for (OrderItem item : order.getItems()) {
+                addUnits(item.getBook().getId(), item.getQuantity());
+                addRevenue(category(item.getBook().getCategory()), cents(item.getQuantity(), item.getPrice()));
+            }
+            maxId = Math.max(maxId, order.getId());
+        }
+        watermark.committed(maxId);
+    }
+
+    // Runs after the commit listener, and also on rollback
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void onOrderCompleted(OrderPlacedEvent event) {
+        watermark.end(event);
+    }
+
+    /**
+     * Adds the orders committed since the previous checkpoint to the checkpoint table. The
+     * totals are summed by the database rather than copied from memory, so the checkpoint
+     * covers exactly the orders up to its watermark.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.analytics.checkpoint-interval:1m}")
+    public synchronized void checkpoint() {
+        long from = checkpointedUpTo;
+        long upTo = watermark.settledUpTo();
+        if (upTo <= from) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, Long> units = new HashMap<>();
+            Map<String, Long> revenue = new HashMap<>();
+            for (BookSalesTotal total : orderRepository.sumSalesBetween(from, upTo)) {
+                units.merge(total.getBookId(), total.getUnits(), Long::sum);
+                revenue.merge(category(total.getCategory()), Math.round(total.getRevenueCents()), Long::sum);
+            }
+            checkpointRepository.add(units, revenue, upTo);
+        });
+        checkpointedUpTo = upTo;
+        log.debug("Sales analytics checkpointed orders {} to {}", from + 1, upTo);
+    }
+
+    /**
+     * The {@code limit} books with the most units sold, best first.
+     */
+    public List<BookUnits> bestsellers(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        PriorityQueue<BookUnits> top = new PriorityQueue<>(BookUnits.WEAKEST_FIRST);
+        unitsByBook.forEach((bookId, units) -> {
+            top.offer(new BookUnits(bookId, units.sum()));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<BookUnits> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Revenue of every category that has sold anything, highest first.
+     */
+    public List<CategoryRevenue> revenueByCategory() {
+        List<CategoryRevenue> result = new ArrayList<>(revenueCentsByCategory.size());
+        revenueCentsByCategory.forEach((category, cents) ->
+                result.add(new CategoryRevenue(category, BigDecimal.valueOf(cents.sum(), 2).doubleValue())));
+        result.sort(Comparator.comparingDouble(CategoryRevenue::revenue).reversed()
+                .thenComparing(CategoryRevenue::category));
+        return result;
+    }
+
+    public long unitsSold(Long bookId) {
+        LongAdder units = unitsByBook.get(bookId);
+        return units == null ? 0 : units.sum();
+    }
+
+    static long cents(int quantity, double price) {
+        return Math.round(quantity * price * 100);
+    }
+
+    static String category(String category) {
+        return category == null || category.isBlank() ? UNCATEGORIZED : category;
+    }
+
+    private void addUnits(Long bookId, long units) {
+        unitsByBook.computeIfAbsent(bookId, id -> new LongAdder()).add(units);
+    }
+
+    private void addRevenue(String category, long cents) {
+        revenueCentsByCategory.computeIfAbsent(category, c -> new LongAdder()).add(cents);
+    }
+
+    public record BookUnits(Long bookId, long units) {
+        // min-heap order: the weakest seller is on top so it is evicted first
+        static final Comparator<BookUnits> WEAKEST_FIRST = Comparator.comparingLong(BookUnits::units)
+                .thenComparing(BookUnits::bookId, Comparator.reverseOrder());
+    }
+
+    public record CategoryRevenue(String category, double revenue) {
+    }
+}
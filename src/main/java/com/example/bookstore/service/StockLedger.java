@@ -0,0 +1,153 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Order;
+import com.example.bookstore.model.OrderItem;
+import com.example.bookstore.model.StockMovement;
+import com.example.bookstore.repository.StockLedgerRepository;
+import com.example.bookstore.repository.StockMovementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only history of every stock change: sales, restocks and admin corrections are
+ * inserted as {@link StockMovement}s in the transaction that makes the change, sales of all
+ * orders of a transaction in one batch. The stock of a book is its {@code stock_snapshot}
+ * plus the movements after it; a scheduled compaction moves the snapshots forward so that
+ * sum stays short.
+ * <p>
+ * {@code book.stock} is still what checkout allocates against (see {@link Inventory}); the
+ * ledger is the audit trail and agrees with it (with the striped inventory, once committed
+ * decrements have been flushed). Every stock change therefore costs the ledger insert on top
+ * of the update of {@code book.stock}. Compaction only folds movements
+ * up to the {@link CommitWatermark}, so a transaction that commits late is never skipped.
+ * Books that were inserted without a movement get an opening balance from {@code book.stock},
+ * taken while the {@link Inventory} is settled so that no sale is counted in the ledger but
+ * not yet in {@code book.stock}.
+ */
+@Service
+public class StockLedger implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(StockLedger.class);
+
+    private final StockLedgerRepository ledgerRepository;
+    private final StockMovementRepository movementRepository;
+    private final Inventory inventory;
+    private final TransactionTemplate transactionTemplate;
+    private final CommitWatermark watermark = new CommitWatermark();
+
+    public StockLedger(StockLedgerRepository ledgerRepository,
+                       StockMovementRepository movementRepository,
+                       Inventory inventory,
+                       PlatformTransactionManager transactionManager) {
+        this.ledgerRepository = ledgerRepository;
+        this.movementRepository = movementRepository;
+        this.inventory = inventory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        transactionTemplate.executeWithoutResult(status -> watermark.reset(ledgerRepository.findMaxMovementId()));
+        int opened = openSnapshots();
+        log.info("Stock ledger opened balances for {} books", opened);
+    }
+
+    /**
+     * Records the sales once the orders have their ids, still inside the placing transaction.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        List<StockMovement> sales = new ArrayList<>();
+        for (Order order : event.getOrders()) {
+            for (OrderItem item : order.getItems()) {
+                sales.add(new StockMovement(item.getBook().getId(), -item.getQuantity(),
+                        StockMovement.Type.SALE, order.getId()));
+            }
+        }
+        record(sales);
+    }
+
+    public void record(StockMovement movement) {
+        record(List.of(movement));
+    }
+
+    /**
+     * Appends the movements in the current transaction, which must also apply them to
+     * {@code book.stock}.
+     */
+    public void record(List<StockMovement> movements) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock movements can only be recorded inside a transaction");
+        }
+        if (movements.isEmpty()) {
+            return;
+        }
+        Object writer = new Object();
+        watermark.begin(writer);
+        long maxId;
+        try {
+            maxId = ledgerRepository.insert(movements);
+        } catch (RuntimeException e) {
+            watermark.end(writer);
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    watermark.committed(maxId);
+                }
+                watermark.end(writer);
+            }
+        });
+    }
+
+    /**
+     * Rolls the committed movements into the snapshots. The movements stay in the ledger.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.inventory.ledger.compact-interval:5m}")
+    public synchronized void compact() {
+        long upTo = watermark.settledUpTo();
+        openSnapshots();
+        int compacted = transactionTemplate.execute(status -> ledgerRepository.compact(upTo, LocalDateTime.now()));
+        log.debug("Stock ledger compacted {} books up to movement {}", compacted, upTo);
+    }
+
+    /**
+     * Stock of the book according to the ledger.
+     */
+    public long currentStock(Long bookId) {
+        Long stock = ledgerRepository.findStock(bookId);
+        if (stock == null) {
+            openSnapshots();
+            stock = ledgerRepository.findStock(bookId);
+        }
+        if (stock == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        return stock;
+    }
+
+    public List<StockMovement> recentMovements(Long bookId, int limit) {
+        return movementRepository.findByBookIdOrderByIdDesc(bookId, Limit.of(limit));
+    }
+
+    // Serialized with compaction, which opens snapshots too
+    private synchronized int openSnapshots() {
+        return inventory.whileSettled(() ->
+                transactionTemplate.execute(status -> ledgerRepository.openSnapshots(LocalDateTime.now())));
+    }
+}
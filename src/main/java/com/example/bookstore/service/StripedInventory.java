@@ -0,0 +1,312 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.BookRepository.StockLevel;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the available stock of every book that has been ordered in memory, in
+ * {@link StripedStock} counters, so checkouts of the same book do not queue on its row.
+ * Stock taken by a checkout is reserved until the transaction completes: given back on
+ * rollback, and on commit added to the book's pending decrement, which a scheduled flush
+ * writes to {@code book.stock} for all books in one batch.
+ * <p>
+ * A reservation whose transaction is still open after {@code reservation-ttl} is given back
+ * and its transaction can no longer commit. Reconciliation reads {@code book.stock} of every
+ * tracked book and applies changes made outside checkout, such as restocking, to the counters.
+ * <p>
+ * Decrements committed since the last flush are lost if the process dies, leaving
+ * {@code book.stock} too high; only one instance may run with this inventory.
+ * <p>
+ * Checkouts commit under the read side of a lock; {@link #whileSettled} takes the write side,
+ * flushes and then runs its action, so the action never sees a sale in the ledger whose
+ * decrement is still pending here.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.inventory", havingValue = "striped")
+public class StripedInventory implements Inventory {
+    private static final Logger log = LoggerFactory.getLogger(StripedInventory.class);
+
+    private static final int RESERVED = 0;
+    private static final int COMMITTING = 1;
+    private static final int EXPIRED = 2;
+    private static final int DONE = 3;
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+    private final long ttlNanos;
+
+    private final Map<Long, Entry> books = new ConcurrentHashMap<>();
+    private final Set<Reservation> reservations = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantReadWriteLock settleLock = new ReentrantReadWriteLock();
+    private final LongAdder expired = new LongAdder();
+
+    public StripedInventory(BookRepository bookRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${bookstore.inventory.stripes:0}") int stripes,
+                            @Value("${bookstore.inventory.reservation-ttl:30s}") Duration reservationTtl) {
+        if (stripes < 0) {
+            throw new IllegalArgumentException("Stripe count cannot be negative");
+        }
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stripes = stripes == 0 ? Runtime.getRuntime().availableProcessors() : stripes;
+        this.ttlNanos = reservationTtl.toNanos();
+    }
+
+    @Override
+    public List<Long> take(Map<Long, Integer> quantitiesByBookId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock can only be taken inside a transaction");
+        }
+        Map<Long, Entry> entries = entries(quantitiesByBookId.keySet());
+        Map<Entry, Integer> taken = new HashMap<>();
+        for (Map.Entry<Long, Integer> line : quantitiesByBookId.entrySet()) {
+            Entry entry = entries.get(line.getKey());
+            if (entry == null || !entry.stock.tryTake(line.getValue())) {
+                taken.forEach((e, quantity) -> e.stock.give(quantity));
+                return List.of(line.getKey());
+            }
+            taken.put(entry, line.getValue());
+        }
+
+        Reservation reservation = new Reservation(taken, System.nanoTime() + ttlNanos);
+        reservations.add(reservation);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!reservation.state.compareAndSet(RESERVED, COMMITTING)) {
+                    throw new IllegalStateException("Stock reservation expired, please try again");
+                }
+                // held until the decrement is pending, see whileSettled
+                settleLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    reservations.remove(reservation);
+                    if (status == STATUS_COMMITTED) {
+                        reservation.state.set(DONE);
+                        reservation.quantities.forEach((entry, quantity) -> entry.pending.add(quantity));
+                    } else if (reservation.state.getAndSet(DONE) != EXPIRED) {
+                        release(reservation);
+                    }
+                } finally {
+                    if (locked) {
+                        settleLock.readLock().unlock();
+                    }
+                }
+            }
+        });
+        return List.of();
+    }
+
+    private Map<Long, Entry> entries(Set<Long> bookIds) {
+        Map<Long, Entry> entries = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long id : bookIds) {
+            Entry entry = books.get(id);
+            if (entry == null) {
+                missing.add(id);
+            } else {
+                entries.put(id, entry);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (StockLevel level : bookRepository.findStockLevelsByIdIn(missing)) {
+                // a concurrent first checkout of the same book may have won; its entry is kept
+                entries.put(level.getId(), books.computeIfAbsent(level.getId(),
+                        id -> new Entry(new StripedStock(Math.max(level.getStock(), 0), stripes), level.getStock())));
+            }
+        }
+        return entries;
+    }
+
+    private void release(Reservation reservation) {
+        reservation.quantities.forEach((entry, quantity) -> entry.stock.give(quantity));
+    }
+
+    /**
+     * Gives back the stock of reservations whose transaction outlived the TTL.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.inventory.sweep-interval:1s}")
+    public void expireReservations() {
+        long now = System.nanoTime();
+        for (Reservation reservation : reservations) {
+            if (now - reservation.deadline > 0 && reservation.state.compareAndSet(RESERVED, EXPIRED)) {
+                reservations.remove(reservation);
+                release(reservation);
+                expired.increment();
+            }
+        }
+    }
+
+    /**
+     * Writes the committed decrements of all books to {@code book.stock} in one batch.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.inventory.flush-interval:200ms}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            writePending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Waits for committing checkouts, writes every pending decrement and runs {@code action}
+     * before the next checkout can commit.
+     *
+     * @throws IllegalStateException if the pending decrements could not be written
+     */
+    @Override
+    public <T> T whileSettled(Supplier<T> action) {
+        settleLock.writeLock().lock();
+        try {
+            flushLock.lock();
+            try {
+                if (!writePending()) {
+                    throw new IllegalStateException("Pending stock decrements could not be written");
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            return action.get();
+        } finally {
+            settleLock.writeLock().unlock();
+        }
+    }
+
+    private boolean writePending() {
+        Map<Entry, Long> pending = new HashMap<>();
+        Map<Long, Long> amounts = new HashMap<>();
+        books.forEach((id, entry) -> {
+            long amount = entry.pending.sum();
+            if (amount != 0) {
+                pending.put(entry, amount);
+                amounts.put(id, amount);
+            }
+        });
+        if (amounts.isEmpty()) {
+            return true;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> bookRepository.subtractStock(amounts));
+        } catch (RuntimeException e) {
+            log.warn("Writing stock of {} books failed, retrying on the next flush: {}", amounts.size(), e.getMessage());
+            return false;
+        }
+        pending.forEach((entry, amount) -> {
+            // decrements committed meanwhile stay pending for the next flush
+            entry.pending.add(-amount);
+            entry.written -= amount;
+        });
+        return true;
+    }
+
+    /**
+     * Applies stock changes made outside checkout since the last reconciliation. Books that
+     * no longer exist are dropped.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.inventory.reconcile-interval:30s}")
+    public void reconcile() {
+        flushLock.lock();
+        try {
+            if (!writePending() || books.isEmpty()) {
+                return;
+            }
+            Map<Long, Integer> current = new HashMap<>();
+            for (StockLevel level : bookRepository.findStockLevelsByIdIn(new ArrayList<>(books.keySet()))) {
+                current.put(level.getId(), level.getStock());
+            }
+            books.forEach((id, entry) -> {
+                Integer stock = current.get(id);
+                if (stock == null) {
+                    books.remove(id);
+                    return;
+                }
+                long drift = stock - entry.written;
+                if (drift != 0) {
+                    log.info("Stock of book {} changed by {} outside checkout, adjusting", id, drift);
+                    entry.stock.adjust(drift);
+                    entry.written = stock;
+                }
+            });
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public long available(Long bookId) {
+        Entry entry = books.get(bookId);
+        return entry == null ? -1 : entry.stock.available();
+    }
+
+    public int openReservations() {
+        return reservations.size();
+    }
+
+    public long expiredReservations() {
+        return expired.sum();
+    }
+
+    private static final class Entry {
+        final StripedStock stock;
+        // committed decrements not yet written to book.stock
+        final LongAdder pending = new LongAdder();
+        // book.stock as last read or written by this inventory; guarded by flushLock
+        long written;
+
+        Entry(StripedStock stock, long written) {
+            this.stock = stock;
+            this.written = written;
+        }
+    }
+
+    private static final class Reservation {
+        final Map<Entry, Integer> quantities;
+        final long deadline;
+        final AtomicInteger state = new AtomicInteger(RESERVED);
+
+        Reservation(Map<Entry, Integer> quantities, long deadline) {
+            this.quantities = quantities;
+            this.deadline = deadline;
+        }
+    }
+}
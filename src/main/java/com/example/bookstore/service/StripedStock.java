@@ -0,0 +1,137 @@
+package com.example.bookstore.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Available units of one book split across stripes, each on its own cache line, so threads
+ * taking stock at the same time mostly update different memory. A thread starts at its own
+ * stripe and moves on to the others when it runs dry; an amount no single stripe can cover
+ * is gathered from several.
+ * <p>
+ * {@link #tryTake} never drives a stripe below zero. Only a negative {@link #adjust} can,
+ * and such a stripe serves nothing until units are given back to it.
+ */
+final class StripedStock {
+    // 16 longs = 128 bytes between stripes, so neighbours never share a cache line (or its prefetch pair)
+    private static final int PAD = 16;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    StripedStock(long units, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        if (units < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PAD, units / stripes + (i < units % stripes ? 1 : 0));
+        }
+    }
+
+    boolean tryTake(long units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        int home = home();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            for (int k = 0; k < stripes; k++) {
+                int index = ((home + k) % stripes) * PAD;
+                long value = cells.get(index);
+                while (value >= units) {
+                    if (cells.compareAndSet(index, value, value - units)) {
+                        return true;
+                    }
+                    value = cells.get(index);
+                }
+            }
+            if (available() < units) {
+                return false;
+            }
+            if (gather(units, home)) {
+                return true;
+            }
+            // another thread moved units between stripes while we were gathering
+        }
+        return false;
+    }
+
+    void give(long units) {
+        cells.getAndAdd(home() * PAD, units);
+    }
+
+    /**
+     * Adds {@code delta} units, which may be negative; a shortfall is recorded as a negative
+     * stripe so the total stays exact.
+     */
+    void adjust(long delta) {
+        if (delta >= 0) {
+            for (int i = 0; i < stripes; i++) {
+                long share = delta / stripes + (i < delta % stripes ? 1 : 0);
+                if (share > 0) {
+                    cells.getAndAdd(i * PAD, share);
+                }
+            }
+            return;
+        }
+        long missing = -delta;
+        for (int i = 0; i < stripes && missing > 0; i++) {
+            missing -= takeUpTo(i * PAD, missing);
+        }
+        if (missing > 0) {
+            cells.getAndAdd(home() * PAD, -missing);
+        }
+    }
+
+    long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    int stripes() {
+        return stripes;
+    }
+
+    private boolean gather(long units, int home) {
+        long[] taken = new long[stripes];
+        long missing = units;
+        for (int k = 0; k < stripes && missing > 0; k++) {
+            int stripe = (home + k) % stripes;
+            long got = takeUpTo(stripe * PAD, missing);
+            taken[stripe] = got;
+            missing -= got;
+        }
+        if (missing == 0) {
+            return true;
+        }
+        for (int i = 0; i < stripes; i++) {
+            if (taken[i] > 0) {
+                cells.getAndAdd(i * PAD, taken[i]);
+            }
+        }
+        return false;
+    }
+
+    private long takeUpTo(int index, long units) {
+        long value = cells.get(index);
+        while (value > 0) {
+            long got = Math.min(value, units);
+            if (cells.compareAndSet(index, value, value - got)) {
+                return got;
+            }
+            value = cells.get(index);
+        }
+        return 0;
+    }
+
+    private int home() {
+        return Math.floorMod(Long.hashCode(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L), stripes);
+    }
+}
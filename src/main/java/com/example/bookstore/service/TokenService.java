@@ -0,0 +1,64 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.UserRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Issues the signed access tokens that replace server-side sessions.
+ * The token carries everything request handling needs about the caller, so validating it
+ * never touches the database.
+ */
+@Service
+public class TokenService {
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+
+    private final JwtEncoder jwtEncoder;
+    private final Duration ttl;
+
+    public TokenService(JwtEncoder jwtEncoder, @Value("${jwt.ttl}") Duration ttl) {
+        this.jwtEncoder = jwtEncoder;
+        this.ttl = ttl;
+    }
+
+    public String issueToken(AuthenticatedUser user) {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject(user.getUsername())
+                .issuedAt(now)
+                .expiresAt(now.plus(ttl))
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole().name())
+                .build();
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        return jwtEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    }
+
+    /**
+     * Rebuilds the principal from a token that has already been verified.
+     */
+    public AuthenticatedUser toPrincipal(Jwt jwt) {
+        Long userId = jwt.getClaim(USER_ID_CLAIM);
+        String role = jwt.getClaimAsString(ROLE_CLAIM);
+        if (userId == null || role == null) {
+            throw new BadJwtException("Token is missing user claims");
+        }
+        return new AuthenticatedUser(userId, jwt.getSubject(), null, UserRole.valueOf(role));
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+}
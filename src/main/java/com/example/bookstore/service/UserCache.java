@@ -0,0 +1,150 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Users by username, so authentication does not open a session or query for every login.
+ * Unknown usernames are cached too. Entries live for {@code ttl}; beyond {@code max-entries}
+ * the oldest are dropped.
+ * <p>
+ * Every change to a user evicts its name when it is flushed and again when the transaction
+ * completes (see {@link UserCacheListener}). A lookup only stores its result if nothing was
+ * evicted while it ran, so a load racing with a change never caches the old row. Callers get
+ * a detached copy and can not alter the cached user.
+ * <p>
+ * Hits and misses are published as {@code bookstore.user.cache.requests} tagged {@code result}.
+ */
+@Component
+public class UserCache {
+    private final Duration ttl;
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // bumped by every eviction, inside the compute of the evicted key; a load that saw a
+    // different value does not store its result
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserCache(@Value("${bookstore.user-cache.ttl:5m}") Duration ttl,
+                     @Value("${bookstore.user-cache.max-entries:10000}") int maxEntries,
+                     MeterRegistry meterRegistry) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        FunctionCounter.builder("bookstore.user.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("bookstore.user.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+    }
+
+    public Optional<AppUser> get(String username, Function<String, Optional<AppUser>> loader) {
+        Entry entry = entries.get(username);
+        if (entry != null && !entry.isExpired(ttl)) {
+            hits.increment();
+            return entry.user().map(UserCache::copy);
+        }
+        misses.increment();
+        long seen = generation.get();
+        Optional<AppUser> user = loader.apply(username).map(UserCache::copy);
+        Entry loaded = new Entry(user, System.nanoTime());
+        // checked under the key's lock, so an eviction either comes first and is seen here or
+        // comes after and removes the stored entry
+        if (entries.compute(username, (key, current) -> generation.get() == seen ? loaded : current) == loaded
+                && entries.size() > maxEntries) {
+            evictOldest();
+        }
+        return user.map(UserCache::copy);
+    }
+
+    public void evict(String username) {
+        entries.compute(username, (key, current) -> {
+            generation.incrementAndGet();
+            return null;
+        });
+    }
+
+    /**
+     * Evicts now and, inside a transaction, again once it has committed or rolled back, so
+     * neither the new nor the old row can stay cached.
+     */
+    public void evictOnCompletion(String username) {
+        evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(username);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops expired entries, then the oldest ones, until a tenth below capacity.
+     */
+    private void evictOldest() {
+        entries.values().removeIf(entry -> entry.isExpired(ttl));
+        int excess = entries.size() - (maxEntries - maxEntries / 10);
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> oldest = new ArrayList<>(entries.entrySet());
+        oldest.sort(Comparator.comparingLong(e -> e.getValue().loadedAt()));
+        for (int i = 0; i < excess && i < oldest.size(); i++) {
+            entries.remove(oldest.get(i).getKey(), oldest.get(i).getValue());
+        }
+    }
+
+    private static AppUser copy(AppUser user) {
+        AppUser copy = new AppUser();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setPassword(user.getPassword());
+        copy.setEmail(user.getEmail());
+        copy.setRole(user.getRole());
+        return copy;
+    }
+
+    private record Entry(Optional<AppUser> user, long loadedAt) {
+        boolean isExpired(Duration ttl) {
+            return System.nanoTime() - loadedAt > ttl.toNanos();
+        }
+    }
+}
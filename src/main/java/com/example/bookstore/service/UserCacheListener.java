@@ -0,0 +1,28 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts a user from the {@link UserCache} whenever Hibernate writes it: registration (which
+ * may replace a cached "unknown user"), password or role changes, and deletion. Hibernate
+ * gets the instance from the Spring context, hence the constructor injection.
+ */
+@Component
+public class UserCacheListener {
+    private final UserCache userCache;
+
+    public UserCacheListener(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void userChanged(AppUser user) {
+        userCache.evictOnCompletion(user.getUsername());
+    }
+}
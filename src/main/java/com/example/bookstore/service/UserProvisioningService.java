@@ -0,0 +1,222 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.UserRole;
+import com.example.bookstore.repository.UserBatchRepository;
+import com.example.bookstore.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Creates many users at once for onboarding. Rows are read lazily and handled in chunks:
+ * each row is validated, a username seen earlier in the same import or already taken is
+ * rejected, the passwords of the chunk are hashed in parallel and the chunk is inserted as
+ * one JDBC batch. A row that fails is reported with its number and the import goes on.
+ * <p>
+ * Hashing runs on its own {@link ForkJoinPool} (parallelism 0 = half the cores, like the
+ * login pool) with a plain BCrypt encoder of the configured strength, so an import neither
+ * queues behind logins nor takes every core from them. If a batch insert fails, e.g. because
+ * a name was registered meanwhile, the chunk is rolled back and its rows are inserted one by
+ * one; a row is reported as taken only if its username now exists, other failures with the
+ * database's message. Chunks that were inserted stay when a later row cannot be parsed.
+ */
+@Service
+public class UserProvisioningService {
+    private static final Logger log = LoggerFactory.getLogger(UserProvisioningService.class);
+    private static final String USERS_BY_USERNAME_REGION = "users-by-username";
+
+    private final UserRepository userRepository;
+    private final UserBatchRepository userBatchRepository;
+    private final UsernameFilter usernameFilter;
+    private final UserCache userCache;
+    private final Validator validator;
+    private final SessionFactory sessionFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder bcrypt;
+    private final ForkJoinPool hashingPool;
+    private final int chunkSize;
+
+    public UserProvisioningService(UserRepository userRepository, UserBatchRepository userBatchRepository,
+                                   UsernameFilter usernameFilter, UserCache userCache, Validator validator,
+                                   EntityManagerFactory entityManagerFactory,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${bookstore.password.bcrypt-strength:10}") int strength,
+                                   @Value("${bookstore.users.bulk.parallelism:0}") int parallelism,
+                                   @Value("${bookstore.users.bulk.chunk-size:500}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.userRepository = userRepository;
+        this.userBatchRepository = userBatchRepository;
+        this.usernameFilter = usernameFilter;
+        this.userCache = userCache;
+        this.validator = validator;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bcrypt = new BCryptPasswordEncoder(strength);
+        this.hashingPool = new ForkJoinPool(
+                parallelism == 0 ? Math.max(1, Runtime.getRuntime().availableProcessors() / 2) : parallelism);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Validates every row with its bean constraints, then creates a {@code ROLE_USER} from it;
+     * the user's password is the raw one.
+     *
+     * @throws IllegalArgumentException if {@code rows} throws one, e.g. for a malformed row
+     */
+    public <T> BulkResult provision(Iterator<T> rows, Function<T, AppUser> toUser) {
+        Set<String> seen = new HashSet<>();
+        List<RowFailure> failures = new ArrayList<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        int received = 0;
+        int created = 0;
+        while (rows.hasNext()) {
+            T row = rows.next();
+            received++;
+            Set<ConstraintViolation<T>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<T> first = violations.stream()
+                        .min(Comparator.comparing(v -> v.getPropertyPath().toString()))
+                        .orElseThrow();
+                failures.add(new RowFailure(received, toUser.apply(row).getUsername(),
+                        first.getPropertyPath() + ": " + first.getMessage()));
+                continue;
+            }
+            AppUser user = toUser.apply(row);
+            user.setRole(UserRole.ROLE_USER);
+            if (!seen.add(user.getUsername())) {
+                failures.add(new RowFailure(received, user.getUsername(), "Duplicate username in this import"));
+                continue;
+            }
+            chunk.add(new Row(received, user));
+            if (chunk.size() == chunkSize) {
+                created += insertChunk(chunk, failures);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += insertChunk(chunk, failures);
+        }
+        failures.sort(Comparator.comparingInt(RowFailure::row));
+        log.info("Provisioned {} of {} users", created, received);
+        return new BulkResult(received, created, failures);
+    }
+
+    private int insertChunk(List<Row> chunk, List<RowFailure> failures) {
+        List<String> maybeTaken = new ArrayList<>();
+        for (Row row : chunk) {
+            if (usernameFilter.mightContain(row.user().getUsername())) {
+                maybeTaken.add(row.user().getUsername());
+            }
+        }
+        Set<String> taken = maybeTaken.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingUsernames(maybeTaken));
+
+        List<Row> fresh = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (taken.contains(row.user().getUsername())) {
+                failures.add(new RowFailure(row.number(), row.user().getUsername(), "User with this username already exists"));
+            } else {
+                fresh.add(row);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        hash(fresh);
+
+        List<AppUser> users = fresh.stream().map(Row::user).toList();
+        users.forEach(user -> usernameFilter.add(user.getUsername()));
+        int created;
+        try {
+            transactionTemplate.executeWithoutResult(status -> userBatchRepository.insertAll(users));
+            created = users.size();
+        } catch (DataAccessException e) {
+            log.debug("Batch insert of {} users failed, inserting them one by one: {}", users.size(), e.getMessage());
+            created = 0;
+            for (Row row : fresh) {
+                try {
+                    userBatchRepository.insert(row.user());
+                    created++;
+                } catch (DataAccessException rowFailure) {
+                    failures.add(new RowFailure(row.number(), row.user().getUsername(),
+                            rowError(row.user(), rowFailure)));
+                }
+            }
+        }
+        sessionFactory.getCache().evictQueryRegion(USERS_BY_USERNAME_REGION);
+        users.forEach(user -> userCache.evict(user.getUsername()));
+        return created;
+    }
+
+    private String rowError(AppUser user, DataAccessException e) {
+        if (e instanceof DuplicateKeyException
+                && !userRepository.findExistingUsernames(List.of(user.getUsername())).isEmpty()) {
+            return "User with this username already exists";
+        }
+        return e.getMostSpecificCause().getMessage();
+    }
+
+    private void hash(List<Row> rows) {
+        List<Callable<Void>> tasks = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            tasks.add(() -> {
+                AppUser user = row.user();
+                user.setPassword(bcrypt.encode(user.getPassword()));
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> done : hashingPool.invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Hashing a password failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    private record Row(int number, AppUser user) {
+    }
+
+    public record BulkResult(int received, int created, List<RowFailure> failures) {
+    }
+
+    /**
+     * A row that was not created; {@code row} counts from 1.
+     */
+    public record RowFailure(int row, String username, String error) {
+    }
+}
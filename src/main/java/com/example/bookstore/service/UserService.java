@@ -1,5 +1,6 @@
 package com.example.bookstore.service;
 
+import com.example.bookstore.config.AuthenticatedUser;
 import com.example.bookstore.model.AppUser;
 import com.example.bookstore.model.UserRole;
 import com.example.bookstore.repository.UserRepository;
@@ -20,14 +21,25 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
+    private final UsernameFilter usernameFilter;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserCache userCache,
+                       UsernameFilter usernameFilter) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
+        this.usernameFilter = usernameFilter;
     }
 
+    /**
+     * A name the {@link UsernameFilter} has never seen is inserted without looking it up
+     * first; if a concurrent registration takes it, the unique constraint rejects the insert
+     * with a {@link org.springframework.dao.DataIntegrityViolationException} (HTTP 409).
+     */
     public AppUser registerUser(AppUser user) {
-        if (userRepository.findByUsername(user.getUsername()).isPresent()) {
+        if (usernameFilter.mightContain(user.getUsername())
+                && userRepository.findByUsername(user.getUsername()).isPresent()) {
             throw new IllegalArgumentException("User with this username already exists");
         }
         user.setPassword(passwordEncoder.encode(user.getPassword()));
@@ -35,24 +47,27 @@ public class UserService implements UserDetailsService {
         return userRepository.save(user);
     }
 
+    public boolean isUsernameAvailable(String username) {
+        return !usernameFilter.mightContain(username) || findByUsername(username).isEmpty();
+    }
+
+    /**
+     * Served from the {@link UserCache}; the returned user is a detached copy.
+     */
     public Optional<AppUser> findByUsername(String username) {
-        log.info("UserService: Querying DB for username = {}", username);
-        return userRepository.findByUsername(username);
+        return userCache.get(username, name -> {
+            log.debug("Querying DB for username = {}", name);
+            return userRepository.findByUsername(name);
+        });
     }
 
+    /**
+     * The returned principal keeps the user id, so callers downstream of authentication
+     * (token issuing, cart and order handling) never have to look the user up again.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         AppUser user = findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User not found"));
-        String roleWithoutPrefix;
-        switch (user.getRole()) {
-            case ROLE_USER -> roleWithoutPrefix = "USER";
-            case ROLE_ADMIN -> roleWithoutPrefix = "ADMIN";
-            default -> roleWithoutPrefix = "USER";  // fallback
-        }
-        return org.springframework.security.core.userdetails.User
-                .withUsername(user.getUsername())
-                .password(user.getPassword())
-                .roles(roleWithoutPrefix)
-                .build();
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(), user.getRole());
     }
 }
\ No newline at end of file
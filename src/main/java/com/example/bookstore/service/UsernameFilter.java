@@ -0,0 +1,103 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of every username in {@code app_user}, so a name that was never taken can be
+ * recognised without a query. {@link #mightContain} never answers false for a taken name;
+ * it answers true for a free one with roughly the configured false-positive rate, and those
+ * callers go on to the database.
+ * <p>
+ * Built before the web server starts and extended whenever an {@link AppUser} is about to be
+ * inserted (see {@link UsernameFilterListener}). Names are never removed: a deleted or rolled back
+ * user only costs an extra query.
+ */
+@Component
+public class UsernameFilter implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(UsernameFilter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    public UsernameFilter(JdbcTemplate jdbcTemplate,
+                          @Value("${bookstore.username-filter.expected-users:100000}") long expectedUsers,
+                          @Value("${bookstore.username-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        if (expectedUsers <= 0) {
+            throw new IllegalArgumentException("Expected users must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        // optimal size and hash count for n names at rate p: m = -n ln p / ln² 2, k = m / n ln 2
+        long optimalBits = (long) Math.ceil(-expectedUsers * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = wordCount * 64L;
+        this.hashes = (int) Math.max(1, Math.min(16, Math.round((double) bits / expectedUsers * Math.log(2))));
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        AtomicInteger count = new AtomicInteger();
+        jdbcTemplate.query("SELECT username FROM app_user", rs -> {
+            add(rs.getString(1));
+            count.incrementAndGet();
+        });
+        log.info("Username filter built from {} users ({} bits, {} hashes)", count.get(), bits, hashes);
+    }
+
+    public void add(String username) {
+        long hash = hash(username);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+
+    /**
+     * False means no user has ever had this name; true means it may be taken.
+     */
+    public boolean mightContain(String username) {
+        long hash = hash(username);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the UTF-16 code units, finished with the SplitMix64 mixer
+    private static long hash(String username) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < username.length(); i++) {
+            hash ^= username.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
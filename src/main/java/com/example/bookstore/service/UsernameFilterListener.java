@@ -0,0 +1,25 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the name of every user about to be inserted to the {@link UsernameFilter}, before the
+ * insert can be seen by anyone else. Hibernate creates this listener while the persistence
+ * unit is being built, before the filter can be, so the filter is looked up on first use.
+ */
+@Component
+public class UsernameFilterListener {
+    private final ObjectProvider<UsernameFilter> usernameFilter;
+
+    public UsernameFilterListener(ObjectProvider<UsernameFilter> usernameFilter) {
+        this.usernameFilter = usernameFilter;
+    }
+
+    @PrePersist
+    public void userAdded(AppUser user) {
+        usernameFilter.getObject().add(user.getUsername());
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.model.CartItem;
+import com.example.bookstore.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps active carts in a bounded in-memory map keyed by user id and writes changed carts
+ * to the database in batches on a schedule. A cart that is not in memory is loaded from the
+ * database on first access.
+ * <p>
+ * Every cart is guarded by its own lock, so requests of different users never contend.
+ * Callers always get a copy of the cart, never the cached instance. Only carts without
+ * pending changes are evicted when the map is full; if every cart is dirty, the
+ * over-capacity caller flushes first.
+ * <p>
+ * Changes made since the last flush are lost if the process dies. Checkout reads the
+ * in-memory cart, so it always sees the latest state.
+ */
+@Component
+@ConditionalOnProperty(name = "bookstore.cart.store", havingValue = "write-behind")
+public class WriteBehindCartStore implements CartStore {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxSize;
+    private final int batchSize;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public WriteBehindCartStore(CartRepository cartRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${bookstore.cart.max-size:10000}") int maxSize,
+                                @Value("${bookstore.cart.flush-batch-size:100}") int batchSize) {
+        if (maxSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Cart store size and batch size must be positive");
+        }
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // loads may run after the caller's transaction committed, see updateOnCommit
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxSize = maxSize;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Cart get(AppUser user) {
+        return access(user, null);
+    }
+
+    @Override
+    public Cart update(AppUser user, Consumer<Cart> mutation) {
+        return access(user, mutation);
+    }
+
+    /**
+     * The in-memory cart is not part of the caller's transaction, so the mutation is held
+     * back until it commits.
+     */
+    @Override
+    public void updateOnCommit(AppUser user, Consumer<Cart> mutation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            access(user, mutation);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                access(user, mutation);
+            }
+        });
+    }
+
+    private Cart access(AppUser user, Consumer<Cart> mutation) {
+        while (true) {
+            Entry entry = entry(user);
+            synchronized (entry) {
+                if (entry.evicted) {
+                    // lost a race with eviction, load the cart again
+                    continue;
+                }
+                entry.lastAccess = System.nanoTime();
+                if (mutation != null) {
+                    mutation.accept(entry.cart);
+                    entry.version++;
+                }
+                return copyOf(entry.cart);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes every cart changed since the last flush, {@code batchSize} carts per transaction.
+     * A batch that fails is retried cart by cart, so one bad cart cannot hold back the others;
+     * carts that still fail stay dirty and are retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${bookstore.cart.flush-interval:1s}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Pending> batch = new ArrayList<>(batchSize);
+            for (Entry entry : entries.values()) {
+                Pending pending = Pending.of(entry);
+                if (pending != null) {
+                    batch.add(pending);
+                }
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Entry entry(AppUser user) {
+        Entry entry = entries.get(user.getId());
+        if (entry != null) {
+            return entry;
+        }
+        entry = entries.computeIfAbsent(user.getId(), userId -> new Entry(load(user)));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+        return entry;
+    }
+
+    private Cart load(AppUser user) {
+        Cart cart = transactionTemplate.execute(status -> cartRepository.findByUserId(user.getId())
+                .map(found -> {
+                    found.getItems().forEach(item -> Hibernate.initialize(item.getBook()));
+                    return found;
+                })
+                .orElse(null));
+        if (cart == null) {
+            cart = new Cart();
+            cart.setUser(user);
+        }
+        return cart;
+    }
+
+    /**
+     * Drops the least recently used clean carts until the map is a tenth below capacity.
+     */
+    private void evict() {
+        int target = maxSize - Math.max(1, maxSize / 10);
+        if (!evictClean(target)) {
+            flush();
+            evictClean(target);
+        }
+    }
+
+    private boolean evictClean(int target) {
+        List<Map.Entry<Long, Entry>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        for (Map.Entry<Long, Entry> candidate : candidates) {
+            if (entries.size() <= target) {
+                return true;
+            }
+            Entry entry = candidate.getValue();
+            synchronized (entry) {
+                if (entry.version == entry.flushedVersion) {
+                    entry.evicted = true;
+                    entries.remove(candidate.getKey(), entry);
+                }
+            }
+        }
+        return entries.size() <= target;
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            List<Cart> saved = transactionTemplate.execute(status ->
+                    cartRepository.saveAll(batch.stream().map(Pending::copy).toList()));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).written(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.warn("Could not write cart of user {}, will retry", batch.get(0).copy().getUser().getId(), e);
+                return;
+            }
+            // the failed transaction may have assigned ids to the copies, so take fresh ones
+            for (Pending pending : batch) {
+                Pending retry = Pending.of(pending.entry());
+                if (retry != null) {
+                    write(List.of(retry));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the cart so that callers and the flush never share the instance that requests mutate.
+     */
+    private static Cart copyOf(Cart cart) {
+        Cart copy = new Cart();
+        copy.setId(cart.getId());
+        copy.setUser(cart.getUser());
+        for (CartItem item : cart.getItems()) {
+            copy.addOrIncrement(item.getBook(), item.getQuantity()).setId(item.getId());
+        }
+        return copy;
+    }
+
+    private static final class Entry {
+        private final Cart cart;
+        private long version;
+        private long flushedVersion;
+        private volatile long lastAccess = System.nanoTime();
+        private boolean evicted;
+
+        private Entry(Cart cart) {
+            this.cart = cart;
+            // a cart that is not in the database yet is dirty from the start
+            this.version = cart.getId() == null ? 1 : 0;
+        }
+    }
+
+    private record Pending(Entry entry, long version, Cart copy) {
+
+        static Pending of(Entry entry) {
+            synchronized (entry) {
+                if (entry.version == entry.flushedVersion) {
+                    return null;
+                }
+                return new Pending(entry, entry.version, copyOf(entry.cart));
+            }
+        }
+
+        /**
+         * Takes over the ids the database assigned, so the next flush updates these rows
+         * instead of inserting them again.
+         */
+        void written(Cart saved) {
+            synchronized (entry) {
+                if (entry.cart.getId() == null) {
+                    entry.cart.setId(saved.getId());
+                }
+                for (CartItem item : saved.getItems()) {
+                    entry.cart.findItem(item.getBook().getId())
+                            .filter(live -> live.getId() == null)
+                            .ifPresent(live -> live.setId(item.getId()));
+                }
+                entry.flushedVersion = Math.max(entry.flushedVersion, version);
+            }
+        }
+    }
+}
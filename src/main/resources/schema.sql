@@ -1,5 +1,13 @@
+-- Ids come from sequences read in blocks of 50 (Hibernate's pooled optimizer), so inserts can be batched
+CREATE SEQUENCE IF NOT EXISTS app_user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS book_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cart_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cart_item_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_item_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS app_user (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     username VARCHAR(255) NOT NULL UNIQUE,
     password VARCHAR(255) NOT NULL,
     email VARCHAR(255),
@@ -7,22 +15,29 @@ CREATE TABLE IF NOT EXISTS app_user (
 );
 
 CREATE TABLE IF NOT EXISTS book (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     title VARCHAR(255) NOT NULL,
     author VARCHAR(255) NOT NULL,
     price DOUBLE NOT NULL,
     category VARCHAR(255),
-    stock INT NOT NULL
+    stock INT NOT NULL,
+    CONSTRAINT uk_book_title_author UNIQUE (title, author)
 );
 
+-- The catalog import matches books by title and author; the unique constraint's index replaces
+-- the plain one of earlier versions. Fails on a database that already holds duplicates, which
+-- have to be merged by hand first
+ALTER TABLE book ADD CONSTRAINT IF NOT EXISTS uk_book_title_author UNIQUE (title, author);
+DROP INDEX IF EXISTS idx_book_title_author;
+
 CREATE TABLE IF NOT EXISTS cart (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     user_id BIGINT,
     FOREIGN KEY (user_id) REFERENCES app_user(id) ON DELETE CASCADE
 );
 
-CREATE TABLE IF NOT EXISTS cart_item (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+CREATE TABLE IF NOT EXISTS cart_items (
+    id BIGINT PRIMARY KEY,
     book_id BIGINT,
     cart_id BIGINT,
     quantity INT NOT NULL,
@@ -31,19 +46,115 @@ CREATE TABLE IF NOT EXISTS cart_item (
 );
 
 CREATE TABLE IF NOT EXISTS orders (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     user_id BIGINT,
     created_at TIMESTAMP NOT NULL,
     total_price DOUBLE NOT NULL,
     FOREIGN KEY (user_id) REFERENCES app_user(id) ON DELETE CASCADE
 );
 
-CREATE TABLE IF NOT EXISTS order_item (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    book_id BIGINT,
-    order_id BIGINT,
+CREATE TABLE IF NOT EXISTS order_items (
+    id BIGINT PRIMARY KEY,
+    book_id BIGINT NOT NULL,
+    order_id BIGINT NOT NULL,
     quantity INT NOT NULL,
     price DOUBLE NOT NULL,
     FOREIGN KEY (book_id) REFERENCES book(id) ON DELETE CASCADE,
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- Databases created before the sequences had identity ids: the identity goes (a no-op once
+-- dropped), and each sequence moves past the highest id by one allocation block, since a value
+-- v hands out v - 49 to v. GREATEST never moves a sequence back, so re-running is harmless
+ALTER TABLE app_user ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE book ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE cart ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE cart_items ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY;
+
+ALTER SEQUENCE app_user_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(id), 0) + 50,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES
+     WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'APP_USER_SEQ')) FROM app_user);
+ALTER SEQUENCE book_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(id), 0) + 50,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES
+     WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'BOOK_SEQ')) FROM book);
+ALTER SEQUENCE cart_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(id), 0) + 50,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES
+     WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'CART_SEQ')) FROM cart);
+ALTER SEQUENCE cart_item_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(id), 0) + 50,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES
+     WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'CART_ITEM_SEQ')) FROM cart_items);
+ALTER SEQUENCE order_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(id), 0) + 50,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES
+     WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'ORDER_SEQ')) FROM orders);
+ALTER SEQUENCE order_item_seq RESTART WITH (SELECT GREATEST(COALESCE(MAX(id), 0) + 50,
+    (SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES
+     WHERE SEQUENCE_SCHEMA = CURRENT_SCHEMA AND SEQUENCE_NAME = 'ORDER_ITEM_SEQ')) FROM order_items);
+
+-- Earlier versions also created cart_item and order_item, which no entity ever mapped to
+DROP TABLE IF EXISTS cart_item;
+DROP TABLE IF EXISTS order_item;
+
+CREATE TABLE IF NOT EXISTS idempotency_record (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    status INT NOT NULL,
+    location VARCHAR(512),
+    body CLOB,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_idempotency_user_key UNIQUE (user_id, idempotency_key)
+);
+
+CREATE TABLE IF NOT EXISTS order_summary (
+    order_id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    total_price DOUBLE NOT NULL,
+    item_count INT NOT NULL,
+    titles VARCHAR(1024),
+    FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_summary_user_created ON order_summary (user_id, created_at, order_id);
+
+-- Summaries of orders placed before the table existed: quantities summed, the first three
+-- titles joined by U+001F as StringListConverter stores them
+INSERT INTO order_summary (order_id, user_id, created_at, total_price, item_count, titles)
+SELECT o.id, o.user_id, o.created_at, o.total_price, COALESCE(SUM(i.quantity), 0),
+       LISTAGG(CASE WHEN i.line <= 3 THEN i.title END, U&'\001F') WITHIN GROUP (ORDER BY i.id)
+FROM orders o
+LEFT JOIN (SELECT oi.order_id, oi.id, oi.quantity, b.title,
+                  ROW_NUMBER() OVER (PARTITION BY oi.order_id ORDER BY oi.id) AS line
+           FROM order_items oi JOIN book b ON b.id = oi.book_id) i ON i.order_id = o.id
+WHERE o.user_id IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM order_summary s WHERE s.order_id = o.id)
+GROUP BY o.id, o.user_id, o.created_at, o.total_price;
+
+-- Sales analytics folded in up to the 'watermark' row's order id; kind is book, category or watermark
+CREATE TABLE IF NOT EXISTS sales_checkpoint (
+    kind VARCHAR(16) NOT NULL,
+    item VARCHAR(255) NOT NULL,
+    amount BIGINT NOT NULL,
+    PRIMARY KEY (kind, item)
+);
+
+CREATE TABLE IF NOT EXISTS stock_movement (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    book_id BIGINT NOT NULL,
+    delta INT NOT NULL,
+    type VARCHAR(16) NOT NULL,
+    order_id BIGINT,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_movement_book ON stock_movement (book_id, id);
+
+-- Opening balances have movement_id 0: the stock before any movement of the book
+CREATE TABLE IF NOT EXISTS stock_snapshot (
+    book_id BIGINT PRIMARY KEY,
+    stock BIGINT NOT NULL,
+    movement_id BIGINT NOT NULL,
+    taken_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,218 @@
+package com.example.bookstore.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledPasswordEncoderTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+    private PooledPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (encoder != null) {
+            encoder.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Хешує з налаштованою складністю та рахує час")
+    void encodeAndMatches_UseConfiguredStrength() {
+        encoder = new PooledPasswordEncoder(new BCryptPasswordEncoder(4), 2, 10, TIMEOUT, registry);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(1, registry.get("bookstore.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, registry.get("bookstore.password.hash").tag("operation", "matches").timer().count());
+        assertNotNull(registry.find("executor.queued").tag("name", "password-hashing").gauge());
+    }
+
+    @Test
+    @DisplayName("Одночасно хешується не більше паролів, ніж є потоків")
+    void concurrentCalls_BoundedByWorkers() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        PasswordEncoder slow = new FakeEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+                return "hashed:" + rawPassword;
+            }
+        };
+        encoder = new PooledPasswordEncoder(slow, 2, 100, TIMEOUT, registry);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String password = "p" + i;
+            results.add(callers.submit(() -> encoder.encode(password)));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("hashed:p" + i, results.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    @DisplayName("Переповнена черга відхиляє запит")
+    void fullQueue_Rejects() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new FakeEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed";
+            }
+        };
+        encoder = new PooledPasswordEncoder(blocking, 1, 1, TIMEOUT, registry);
+
+        Future<String> running = callers.submit(() -> encoder.encode("a"));
+        Future<String> queued = callers.submit(() -> encoder.encode("b"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.queued() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(OverloadedException.class, () -> encoder.encode("c"));
+        assertEquals(1, registry.get("bookstore.password.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("hashed", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hashed", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Перевантаження під час перевірки невідомого користувача дає 429, а не 401")
+    void unknownUser_Overloaded_NotWrappedAsAuthenticationFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new FakeEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed";
+            }
+        };
+        encoder = new PooledPasswordEncoder(blocking, 1, 1, TIMEOUT, registry);
+        AuthenticationManager authenticationManager = new SecurityConfig().authenticationManager(username -> {
+            throw new UsernameNotFoundException(username);
+        }, encoder);
+
+        Future<String> running = callers.submit(() -> encoder.encode("a"));
+        Future<String> queued = callers.submit(() -> encoder.encode("b"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.queued() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(OverloadedException.class, () -> authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated("nobody", "secret")));
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Запит, що чекає довше за wait-timeout, відхиляється і знімається з черги")
+    void waitTimeout_Rejects() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new FakeEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed";
+            }
+        };
+        encoder = new PooledPasswordEncoder(blocking, 1, 10, Duration.ofMillis(50), registry);
+        Future<String> running = callers.submit(() -> encoder.encode("a"));
+
+        assertThrows(OverloadedException.class, () -> encoder.encode("b"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> running.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(OverloadedException.class, e.getCause());
+        assertEquals(2, registry.get("bookstore.password.rejected").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Перевантаження, загорнуте провайдером автентифікації, теж дає 429")
+    void overloadInUserLookup_Unwrapped() {
+        encoder = new PooledPasswordEncoder(new FakeEncoder(), 1, 1, TIMEOUT, registry);
+        AuthenticationManager authenticationManager = new SecurityConfig().authenticationManager(username -> {
+            throw new OverloadedException("Too many password checks in progress, try again later");
+        }, encoder);
+
+        assertThrows(OverloadedException.class, () -> authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated("someone", "secret")));
+    }
+
+    @Test
+    @DisplayName("Помилка кодувальника передається викликачу")
+    void delegateFailure_Propagates() {
+        encoder = new PooledPasswordEncoder(new FakeEncoder() {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                throw new IllegalArgumentException("Encoded password does not look like BCrypt");
+            }
+        }, 1, 1, TIMEOUT, registry);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> encoder.matches("secret", "plain"));
+        assertEquals("Encoded password does not look like BCrypt", e.getMessage());
+    }
+
+    private static class FakeEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(rawPassword.toString());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bookstore.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketsTest {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    @DisplayName("Після сплеску запити відхиляються до поповнення")
+    void tryAcquire_BurstThenRefill() {
+        // 60 per minute: one token a second
+        TokenBuckets buckets = new TokenBuckets(3, 60, 100);
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, buckets.tryAcquire("10.0.0.1", now));
+        }
+        assertEquals(SECOND, buckets.tryAcquire("10.0.0.1", now));
+        assertEquals(SECOND / 2, buckets.tryAcquire("10.0.0.1", now + SECOND / 2));
+
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", now + SECOND));
+        assertTrue(buckets.tryAcquire("10.0.0.1", now + SECOND) > 0);
+        // other keys have their own bucket
+        assertEquals(0, buckets.tryAcquire("10.0.0.2", now));
+    }
+
+    @Test
+    @DisplayName("Відхилений запит не витрачає токен")
+    void tryAcquire_RejectionIsFree() {
+        TokenBuckets buckets = new TokenBuckets(1, 60, 100);
+        long now = 1_000 * SECOND;
+
+        assertEquals(0, buckets.tryAcquire("user", now));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(buckets.tryAcquire("user", now) > 0);
+        }
+
+        assertEquals(0, buckets.tryAcquire("user", now + SECOND));
+    }
+
+    @Test
+    @DisplayName("Повна мапа відкидає неактивні ключі, а решта ділить один кошик")
+    void tryAcquire_BoundedKeys() {
+        TokenBuckets buckets = new TokenBuckets(2, 60, 3);
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            buckets.tryAcquire("busy-" + i, now);
+        }
+
+        assertEquals(0, buckets.tryAcquire("new-1", now));
+        assertEquals(0, buckets.tryAcquire("new-2", now));
+        assertTrue(buckets.tryAcquire("new-3", now) > 0);
+        assertEquals(3, buckets.size());
+
+        // every bucket is full again a few seconds later
+        long later = now + 5 * SECOND;
+        assertEquals(0, buckets.tryAcquire("new-4", later));
+        assertEquals(1, buckets.size());
+    }
+
+    @Test
+    @DisplayName("Паралельні запити отримують рівно стільки токенів, скільки є")
+    void tryAcquire_ConcurrentExact() throws Exception {
+        TokenBuckets buckets = new TokenBuckets(50, 1, 100);
+        long now = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    if (buckets.tryAcquire("hot", now) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(50, admitted.get());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.UserRole;
+import com.example.bookstore.repository.UserRepository;
+import com.example.bookstore.service.TokenService;
+import com.example.bookstore.service.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admin-user-controller-test",
+        "bookstore.password.bcrypt-strength=4",
+        "bookstore.users.bulk.chunk-size=2"
+})
+@AutoConfigureMockMvc
+class AdminUserControllerTest {
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String bearer(UserRole role) {
+        return "Bearer " + tokenService.issueToken(new AuthenticatedUser(1L, "provisioner", null, role));
+    }
+
+    private static String row(String username, String password) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + password + "\",\"email\":\"" + username + "@corp.example\"}";
+    }
+
+    @Test
+    @DisplayName("Створює користувачів і звітує про рядки з помилками")
+    void bulk_CreatesUsersAndReportsFailures() throws Exception {
+        AppUser existing = new AppUser();
+        existing.setUsername("bulk-taken");
+        existing.setPassword("hash");
+        userRepository.save(existing);
+
+        String body = String.join("\n",
+                row("bulk-alice", "secret1"),
+                row("bulk-bob", "secret2"),
+                row("bulk-alice", "secret3"),
+                row("bulk-taken", "secret4"),
+                row("bulk-short", "123"),
+                row("bulk-carol", "secret6"));
+
+        mockMvc.perform(post("/api/admin/users/bulk")
+                        .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                        .contentType(NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(6))
+                .andExpect(jsonPath("$.created").value(3))
+                .andExpect(jsonPath("$.failures.length()").value(3))
+                .andExpect(jsonPath("$.failures[0].row").value(3))
+                .andExpect(jsonPath("$.failures[0].error").value("Duplicate username in this import"))
+                .andExpect(jsonPath("$.failures[1].row").value(4))
+                .andExpect(jsonPath("$.failures[1].error").value("User with this username already exists"))
+                .andExpect(jsonPath("$.failures[2].row").value(5))
+                .andExpect(jsonPath("$.failures[2].username").value("bulk-short"));
+
+        AppUser alice = userService.findByUsername("bulk-alice").orElseThrow();
+        assertTrue(passwordEncoder.matches("secret1", alice.getPassword()));
+        assertEquals(UserRole.ROLE_USER, alice.getRole());
+        assertTrue(userService.findByUsername("bulk-carol").isPresent());
+        assertTrue(userService.findByUsername("bulk-short").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Приймає JSON-масив")
+    void bulk_AcceptsJsonArray() throws Exception {
+        mockMvc.perform(post("/api/admin/users/bulk")
+                        .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + row("array-1", "secret1") + "," + row("array-2", "secret2") + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.failures").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ім'я, зайняте в обхід перевірки, відхиляється без зриву партії")
+    void bulk_ConstraintViolation_FailsOnlyThatRow() throws Exception {
+        // inserted behind the username filter's back, as a concurrent registration could be
+        jdbcTemplate.update("INSERT INTO app_user (id, username, password, role) "
+                + "VALUES (NEXT VALUE FOR app_user_seq, 'race-winner', 'hash', 'ROLE_USER')");
+
+        mockMvc.perform(post("/api/admin/users/bulk")
+                        .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                        .contentType(NDJSON)
+                        .content(row("race-winner", "secret1") + "\n" + row("race-other", "secret2")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.failures[0].row").value(1))
+                .andExpect(jsonPath("$.failures[0].error").value("User with this username already exists"));
+
+        assertTrue(userService.findByUsername("race-other").isPresent());
+    }
+
+    @Test
+    @DisplayName("Інша помилка бази звітується як є, а не як зайняте ім'я")
+    void bulk_OtherConstraintViolation_ReportedAsIs() throws Exception {
+        jdbcTemplate.execute("ALTER TABLE app_user ADD CONSTRAINT ck_bulk_test "
+                + "CHECK (email IS NULL OR email <> 'bulk-blocked@corp.example')");
+        try {
+            mockMvc.perform(post("/api/admin/users/bulk")
+                            .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                            .contentType(NDJSON)
+                            .content(row("bulk-blocked", "secret1") + "\n" + row("bulk-allowed", "secret2")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.created").value(1))
+                    .andExpect(jsonPath("$.failures[0].row").value(1))
+                    .andExpect(jsonPath("$.failures[0].error").value(containsString("CK_BULK_TEST")));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE app_user DROP CONSTRAINT ck_bulk_test");
+        }
+
+        assertTrue(userService.findByUsername("bulk-allowed").isPresent());
+    }
+
+    @Test
+    @DisplayName("Раніше закешований невідомий користувач стає видимим")
+    void bulk_EvictsCachedMisses() throws Exception {
+        assertTrue(userService.findByUsername("cached-miss").isEmpty());
+
+        mockMvc.perform(post("/api/admin/users/bulk")
+                        .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                        .contentType(NDJSON)
+                        .content(row("cached-miss", "secret1")))
+                .andExpect(status().isOk());
+
+        assertTrue(userService.findByUsername("cached-miss").isPresent());
+    }
+
+    @Test
+    @DisplayName("Зіпсований ввід - 400, звичайний користувач - 403")
+    void bulk_MalformedAndForbidden() throws Exception {
+        mockMvc.perform(post("/api/admin/users/bulk")
+                        .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                        .contentType(NDJSON)
+                        .content(row("fine", "secret1") + "\n{\"username\":"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/admin/users/bulk")
+                        .header("Authorization", bearer(UserRole.ROLE_USER))
+                        .contentType(NDJSON)
+                        .content(row("nope", "secret1")))
+                .andExpect(status().isForbidden());
+    }
+}
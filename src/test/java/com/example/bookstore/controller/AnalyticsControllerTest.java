@@ -0,0 +1,58 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.UserRole;
+import com.example.bookstore.service.TokenService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private String bearer(UserRole role) {
+        return "Bearer " + tokenService.issueToken(new AuthenticatedUser(1L, "analytics", null, role));
+    }
+
+    @Test
+    @DisplayName("Адміністратор отримує бестселери і виручку")
+    void admin_GetsAnalytics() throws Exception {
+        mockMvc.perform(get("/api/admin/analytics/bestsellers")
+                        .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+        mockMvc.perform(get("/api/admin/analytics/revenue").header("Authorization", bearer(UserRole.ROLE_ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    @Test
+    @DisplayName("Звичайному користувачу доступ заборонено")
+    void user_Forbidden() throws Exception {
+        mockMvc.perform(get("/api/admin/analytics/bestsellers").header("Authorization", bearer(UserRole.ROLE_USER)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("Некоректний ліміт")
+    void bestsellers_InvalidLimit_BadRequest() throws Exception {
+        mockMvc.perform(get("/api/admin/analytics/bestsellers")
+                        .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderSummaryRepository;
+import com.example.bookstore.repository.UserRepository;
+import com.example.bookstore.service.TokenService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:async-checkout-test",
+        "bookstore.checkout.async=true"
+})
+@AutoConfigureMockMvc
+class AsyncCheckoutControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    private AppUser user;
+    private Book book;
+    private String bearer;
+
+    @BeforeEach
+    void setUp() {
+        user = new AppUser();
+        user.setUsername("asyncbuyer");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        book = new Book();
+        book.setTitle("Async Book");
+        book.setAuthor("Async Author");
+        book.setPrice(12.5);
+        book.setStock(3);
+        book = bookRepository.save(book);
+
+        bearer = "Bearer " + tokenService.issueToken(
+                new AuthenticatedUser(user.getId(), user.getUsername(), null, user.getRole()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderSummaryRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.delete(user);
+        bookRepository.delete(book);
+    }
+
+    @Test
+    @DisplayName("POST /api/orders повертає 202 і статус, який завершується замовленням")
+    void createOrder_Accepted_ThenCompleted() throws Exception {
+        mockMvc.perform(post("/api/cart/add")
+                        .header("Authorization", bearer)
+                        .param("bookId", book.getId().toString())
+                        .param("quantity", "2"))
+                .andExpect(status().isOk());
+
+        MvcResult accepted = mockMvc.perform(post("/api/orders").header("Authorization", bearer))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.id").exists())
+                .andReturn();
+        String location = accepted.getResponse().getHeader("Location");
+
+        String status = null;
+        String body = null;
+        for (int i = 0; i < 500 && !"COMPLETED".equals(status) && !"FAILED".equals(status); i++) {
+            Thread.sleep(10);
+            body = mockMvc.perform(get(location).header("Authorization", bearer))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            status = JsonPath.read(body, "$.status");
+        }
+
+        assertEquals("COMPLETED", status, body);
+        Number orderId = JsonPath.read(body, "$.orderId");
+        assertTrue(orderRepository.existsById(orderId.longValue()));
+        assertEquals(1, bookRepository.findById(book.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("Порожній кошик відхиляється одразу")
+    void createOrder_EmptyCart_BadRequest() throws Exception {
+        mockMvc.perform(post("/api/orders").header("Authorization", bearer))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Невідомий квиток")
+    void getCheckout_Unknown() throws Exception {
+        mockMvc.perform(get("/api/orders/checkouts/unknown").header("Authorization", bearer))
+                .andExpect(status().isBadRequest());
+    }
+}
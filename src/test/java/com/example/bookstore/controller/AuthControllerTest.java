@@ -1,5 +1,6 @@
 package com.example.bookstore.controller;
 
+import com.example.bookstore.config.AuthRateLimiter;
 import com.example.bookstore.controller.dto.LoginRequest;
 import com.example.bookstore.controller.dto.RegisterRequest;
 import com.example.bookstore.model.AppUser;
@@ -40,9 +41,13 @@ class AuthControllerTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private AuthRateLimiter rateLimiter;
+
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
+        rateLimiter.clear();
     }
 
     @Nested
@@ -151,8 +156,66 @@ class AuthControllerTest {
     }
 
     @Nested
-    @DisplayName("POST /api/auth/login")
-    class LoginTests {
+    @DisplayName("GET /api/auth/available")
+    class AvailableTests {
+
+        @Test
+        @DisplayName("Вільне і зайняте ім'я")
+        void available_FreeAndTaken() throws Exception {
+            AppUser user = new AppUser();
+            user.setUsername("taken");
+            user.setPassword("hash");
+            userRepository.save(user);
+
+            mockMvc.perform(get("/api/auth/available").param("username", "taken"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.username").value("taken"))
+                    .andExpect(jsonPath("$.available").value(false));
+            mockMvc.perform(get("/api/auth/available").param("username", "still-free"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.available").value(true));
+        }
+
+        @Test
+        @DisplayName("Порожнє ім'я - помилка")
+        void available_BlankUsername() throws Exception {
+            mockMvc.perform(get("/api/auth/available").param("username", " "))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Перевірки імені витрачають спроби тієї ж IP")
+        void available_ThrottledPerIp() throws Exception {
+            for (int i = 0; i < 20; i++) {
+                mockMvc.perform(get("/api/auth/available").param("username", "probe" + i)
+                                .with(request -> {
+                                    request.setRemoteAddr("192.0.2.8");
+                                    return request;
+                                }))
+                        .andExpect(status().isOk());
+            }
+
+            mockMvc.perform(get("/api/auth/available").param("username", "probe")
+                            .with(request -> {
+                                request.setRemoteAddr("192.0.2.8");
+                                return request;
+                            }))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists("Retry-After"));
+            mockMvc.perform(post("/api/auth/token")
+                            .with(request -> {
+                                request.setRemoteAddr("192.0.2.8");
+                                return request;
+                            })
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{}"))
+                    .andExpect(status().isTooManyRequests());
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/auth/token")
+    class TokenTests {
 
         @BeforeEach
         void setUpUser() {
@@ -165,56 +228,181 @@ class AuthControllerTest {
             userRepository.save(user);
         }
 
+        private String tokenRequest(String username, String password) throws Exception {
+            LoginRequest request = new LoginRequest();
+            request.setUsername(username);
+            request.setPassword(password);
+            return objectMapper.writeValueAsString(request);
+        }
+
         @Test
-        @DisplayName("Успішний логін")
-        void login_Success() throws Exception {
-            mockMvc.perform(post("/api/auth/login")
-                            .param("username", "logintest")
-                            .param("password", "password123"))
-                    .andExpect(status().isOk());
+        @DisplayName("Успішне отримання токена")
+        void token_Success() throws Exception {
+            var result = mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "password123")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.accessToken").isNotEmpty())
+                    .andExpect(jsonPath("$.tokenType").value("Bearer"))
+                    .andExpect(jsonPath("$.expiresIn").value(greaterThan(0)))
+                    .andReturn();
+
+            assertNull(result.getRequest().getSession(false));
         }
 
         @Test
-        @DisplayName("Логін - невірний пароль")
-        void login_WrongPassword() throws Exception {
-            mockMvc.perform(post("/api/auth/login")
-                            .param("username", "logintest")
-                            .param("password", "wrongpassword"))
-                    .andExpect(status().isUnauthorized());
+        @DisplayName("Токен автентифікує запит без сесії")
+        void token_AuthenticatesBearerRequests() throws Exception {
+            String body = mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "password123")))
+                    .andReturn().getResponse().getContentAsString();
+            String token = objectMapper.readTree(body).get("accessToken").asText();
+
+            mockMvc.perform(get("/api/auth/me").header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.username").value("logintest"))
+                    .andExpect(jsonPath("$.role").value("ROLE_USER"));
         }
 
         @Test
-        @DisplayName("Логін - користувач не існує")
-        void login_UserNotFound() throws Exception {
-            mockMvc.perform(post("/api/auth/login")
-                            .param("username", "nonexistent")
-                            .param("password", "password123"))
+        @DisplayName("Запит без токена або з підробленим токеном")
+        void protectedEndpoint_WithoutValidToken() throws Exception {
+            mockMvc.perform(get("/api/cart"))
                     .andExpect(status().isUnauthorized());
+            mockMvc.perform(get("/api/cart").header("Authorization", "Bearer not.a.token"))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        @Test
+        @DisplayName("Токен - невірний пароль")
+        void token_WrongPassword() throws Exception {
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "wrongpassword")))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(jsonPath("$.error").value("Invalid username or password"));
         }
 
         @Test
-        @DisplayName("Логін - порожній username")
-        void login_BlankUsername() throws Exception {
-            mockMvc.perform(post("/api/auth/login")
-                            .param("username", "")
-                            .param("password", "password123"))
+        @DisplayName("Токен - користувач не існує")
+        void token_UserNotFound() throws Exception {
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("nonexistent", "password123")))
                     .andExpect(status().isUnauthorized());
         }
 
         @Test
-        @DisplayName("Логін - порожній пароль")
-        void login_BlankPassword() throws Exception {
-            mockMvc.perform(post("/api/auth/login")
-                            .param("username", "logintest")
-                            .param("password", ""))
+        @DisplayName("Щойно зареєстрований користувач одразу може увійти")
+        void token_AfterRegistration() throws Exception {
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("newcomer", "password123")))
                     .andExpect(status().isUnauthorized());
+
+            RegisterRequest request = new RegisterRequest();
+            request.setUsername("newcomer");
+            request.setPassword("password123");
+            mockMvc.perform(post("/api/auth/register")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk());
+
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("newcomer", "password123")))
+                    .andExpect(status().isOk());
         }
 
         @Test
-        @DisplayName("Логін - без параметрів")
-        void login_EmptyParams() throws Exception {
-            mockMvc.perform(post("/api/auth/login"))
+        @DisplayName("Зміна пароля одразу діє на вхід")
+        void token_AfterPasswordChange() throws Exception {
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "password123")))
+                    .andExpect(status().isOk());
+
+            AppUser user = userRepository.findByUsername("logintest").orElseThrow();
+            user.setPassword(passwordEncoder.encode("changed456"));
+            userRepository.saveAndFlush(user);
+
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "password123")))
                     .andExpect(status().isUnauthorized());
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "changed456")))
+                    .andExpect(status().isOk());
+        }
+
+        @Test
+        @DisplayName("Вичерпані спроби для користувача - 429 до перевірки пароля")
+        void token_ThrottledPerUsername() throws Exception {
+            for (int i = 0; i < 5; i++) {
+                mockMvc.perform(post("/api/auth/token")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(tokenRequest("logintest", "wrongpassword")))
+                        .andExpect(status().isUnauthorized());
+            }
+
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "password123")))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists("Retry-After"))
+                    .andExpect(jsonPath("$.error").value(AuthRateLimiter.MESSAGE));
+        }
+
+        @Test
+        @DisplayName("Вичерпані спроби з однієї IP - 429 до розбору запиту")
+        void auth_ThrottledPerIp() throws Exception {
+            for (int i = 0; i < 20; i++) {
+                mockMvc.perform(post("/api/auth/register")
+                                .with(request -> {
+                                    request.setRemoteAddr("192.0.2.7");
+                                    return request;
+                                })
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{}"))
+                        .andExpect(status().isBadRequest());
+            }
+
+            mockMvc.perform(post("/api/auth/token")
+                            .with(request -> {
+                                request.setRemoteAddr("192.0.2.7");
+                                return request;
+                            })
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "password123")))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists("Retry-After"));
+            // other clients are not affected
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "password123")))
+                    .andExpect(status().isOk());
+        }
+
+        @Test
+        @DisplayName("Токен - порожній username")
+        void token_BlankUsername() throws Exception {
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("", "password123")))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.username").exists());
+        }
+
+        @Test
+        @DisplayName("Токен - порожній пароль")
+        void token_BlankPassword() throws Exception {
+            mockMvc.perform(post("/api/auth/token")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(tokenRequest("logintest", "")))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.password").exists());
         }
     }
 }
@@ -0,0 +1,272 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.StockMovement;
+import com.example.bookstore.model.UserRole;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.service.BookService;
+import com.example.bookstore.service.StockLedger;
+import com.example.bookstore.service.TokenService;
+import com.example.bookstore.support.StatementCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class BookControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        for (int i = 1; i <= 5; i++) {
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setPrice(10.0 + i);
+            book.setCategory("Fiction");
+            book.setStock(i);
+            bookRepository.save(book);
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/books")
+    class ListTests {
+
+        @Test
+        @DisplayName("Обхід каталогу курсором")
+        void getAllBooks_WalksCatalogWithCursor() throws Exception {
+            List<String> titles = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                var request = get("/api/books").param("limit", "2");
+                if (cursor != null) {
+                    request.param("cursor", cursor);
+                }
+                String body = mockMvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString();
+                JsonNode page = objectMapper.readTree(body);
+                page.get("items").forEach(item -> titles.add(item.get("title").asText()));
+                cursor = page.get("next").isNull() ? null : page.get("next").asText();
+                pages++;
+            } while (cursor != null);
+
+            assertEquals(3, pages);
+            assertEquals(List.of("Book 1", "Book 2", "Book 3", "Book 4", "Book 5"), titles);
+        }
+
+        @Test
+        @DisplayName("Невалідний курсор")
+        void getAllBooks_InvalidCursor() throws Exception {
+            mockMvc.perform(get("/api/books").param("cursor", "not a cursor"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Ліміт поза межами")
+        void getAllBooks_LimitOutOfRange() throws Exception {
+            mockMvc.perform(get("/api/books").param("limit", "501"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/books/search")
+    class SearchTests {
+
+        @Test
+        @DisplayName("Короткий запит повертає перші за id книги в межах ліміту")
+        void searchBooks_ShortQuery_FirstBooksWithinLimit() throws Exception {
+            String bearer = "Bearer " + tokenService.issueToken(
+                    new AuthenticatedUser(1L, "reader", null, UserRole.ROLE_USER));
+            mockMvc.perform(get("/api/books/search").param("search", "B").param("limit", "2")
+                            .header("Authorization", bearer))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].title").value("Book 1"))
+                    .andExpect(jsonPath("$[1].title").value("Book 2"));
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/books/stream")
+    class StreamTests {
+
+        @Test
+        @DisplayName("Каталог як NDJSON")
+        void streamBooks_WritesOneJsonRowPerBook() throws Exception {
+            String body = mockMvc.perform(get("/api/books/stream"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                    .andReturn().getResponse().getContentAsString();
+
+            String[] rows = body.trim().split("\n");
+            assertEquals(5, rows.length);
+            assertEquals("Book 1", objectMapper.readTree(rows[0]).get("title").asText());
+            assertEquals("Book 5", objectMapper.readTree(rows[4]).get("title").asText());
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/books/import")
+    class ImportTests {
+
+        private String bearer(UserRole role) {
+            return "Bearer " + tokenService.issueToken(new AuthenticatedUser(1L, "importer", null, role));
+        }
+
+        private Book find(String title, String author) {
+            return bookRepository.findByTitleOrAuthor(title, Limit.unlimited()).stream()
+                    .filter(book -> book.getAuthor().equals(author))
+                    .findFirst().orElseThrow();
+        }
+
+        @Test
+        @DisplayName("CSV: нові книги створюються, наявні оновлюються, погані рядки звітуються")
+        void importCsv_UpsertsAndReportsErrors() throws Exception {
+            String csv = String.join("\n",
+                    "Title,Author,Price,Stock,Category,ISBN",
+                    "\"Concurrency, in Practice\",Brian Goetz,45.5,3,Tech,978-0321349606",
+                    "Book 1,Author 1,9.5,7,Classics,",
+                    "Broken,Nobody,-3,1,Tech,",
+                    "Also broken,Nobody,1.0,many,Tech,",
+                    "\"The \"\"Quoted\"\" One\",Someone,12,0,,");
+
+            mockMvc.perform(post("/api/books/import")
+                            .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                            .contentType("text/csv")
+                            .content(csv))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.received").value(5))
+                    .andExpect(jsonPath("$.created").value(2))
+                    .andExpect(jsonPath("$.updated").value(1))
+                    .andExpect(jsonPath("$.failed").value(2))
+                    .andExpect(jsonPath("$.errors[0].line").value(4))
+                    .andExpect(jsonPath("$.errors[0].error").value("Price must be positive"))
+                    .andExpect(jsonPath("$.errors[1].line").value(5))
+                    .andExpect(jsonPath("$.errors[1].error").value("stock: not a number"));
+
+            Book updated = find("Book 1", "Author 1");
+            assertEquals(9.5, updated.getPrice());
+            assertEquals(7, updated.getStock());
+            assertEquals("Classics", updated.getCategory());
+            StockMovement correction = stockLedger.recentMovements(updated.getId(), 1).get(0);
+            assertEquals(StockMovement.Type.CORRECTION, correction.getType());
+            assertEquals(6, correction.getDelta());
+
+            Book created = find("Concurrency, in Practice", "Brian Goetz");
+            assertEquals(3, stockLedger.currentStock(created.getId()));
+            assertEquals("The \"Quoted\" One", find("The \"Quoted\" One", "Someone").getTitle());
+            assertEquals(List.of(created), bookService.searchBooks("goetz"));
+        }
+
+        @Test
+        @DisplayName("NDJSON: зіпсований рядок не зупиняє імпорт, пізніший дублікат перемагає")
+        void importNdjson_SkipsMalformedLinesAndLastRowWins() throws Exception {
+            String ndjson = String.join("\n",
+                    "{\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"price\":15.0,\"stock\":4}",
+                    "{\"title\":\"Dune\",",
+                    "",
+                    "{\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"price\":17.0,\"stock\":6}",
+                    "{\"author\":\"Anonymous\",\"price\":1.0,\"stock\":1}");
+
+            mockMvc.perform(post("/api/books/import")
+                            .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                            .contentType("application/x-ndjson")
+                            .content(ndjson))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.received").value(4))
+                    .andExpect(jsonPath("$.created").value(1))
+                    .andExpect(jsonPath("$.updated").value(1))
+                    .andExpect(jsonPath("$.errors[0].line").value(2))
+                    .andExpect(jsonPath("$.errors[1].line").value(5))
+                    .andExpect(jsonPath("$.errors[1].error").value("Title is required"));
+
+            Book dune = find("Dune", "Frank Herbert");
+            assertEquals(17.0, dune.getPrice());
+            assertEquals(6, stockLedger.currentStock(dune.getId()));
+        }
+
+        @Test
+        @DisplayName("Нові книги вставляються пакетами, а не по одному запиту")
+        void importNdjson_BatchesInserts() throws Exception {
+            StringBuilder ndjson = new StringBuilder();
+            for (int i = 0; i < 120; i++) {
+                ndjson.append("{\"title\":\"Feed title ").append(i)
+                        .append("\",\"author\":\"Feed author\",\"price\":9.99,\"stock\":1}\n");
+            }
+            bookRepository.flush();
+            StatementCounter counter = new StatementCounter(entityManagerFactory);
+            counter.reset();
+
+            mockMvc.perform(post("/api/books/import")
+                            .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                            .contentType("application/x-ndjson")
+                            .content(ndjson.toString()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.created").value(120));
+
+            assertEquals(120, counter.inserts());
+            // lookup, three sequence calls for 120 ids and one batched insert statement
+            assertTrue(counter.statements() <= 6, "statements: " + counter.statements());
+        }
+
+        @Test
+        @DisplayName("Без заголовка CSV - 400, без ролі ADMIN - 403")
+        void importBooks_BadHeaderAndForbidden() throws Exception {
+            mockMvc.perform(post("/api/books/import")
+                            .header("Authorization", bearer(UserRole.ROLE_ADMIN))
+                            .contentType("text/csv")
+                            .content("name,writer\nx,y"))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(post("/api/books/import")
+                            .header("Authorization", bearer(UserRole.ROLE_USER))
+                            .contentType("text/csv")
+                            .content("title,author,price,stock\nx,y,1,1"))
+                    .andExpect(status().isForbidden());
+        }
+    }
+}
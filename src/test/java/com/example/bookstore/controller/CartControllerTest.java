@@ -0,0 +1,288 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.UserRepository;
+import com.example.bookstore.service.TokenService;
+import com.example.bookstore.support.StatementCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Not transactional on purpose: each request must run in its own persistence context,
+ * otherwise the statement counts would be hidden by entities the test already loaded.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CartControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private StatementCounter counter;
+    private AppUser user;
+    private Book book;
+    private String bearer;
+
+    @BeforeEach
+    void setUp() {
+        counter = new StatementCounter(entityManagerFactory);
+
+        user = new AppUser();
+        user.setUsername("cartuser");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        book = new Book();
+        book.setTitle("Cart Book");
+        book.setAuthor("Cart Author");
+        book.setPrice(9.99);
+        book.setStock(10);
+        book = bookRepository.save(book);
+
+        bearer = "Bearer " + tokenService.issueToken(
+                new AuthenticatedUser(user.getId(), user.getUsername(), null, user.getRole()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartRepository.findByUserId(user.getId()).ifPresent(cartRepository::delete);
+        userRepository.delete(user);
+        bookRepository.delete(book);
+    }
+
+    private void evictSecondLevelCache() {
+        entityManagerFactory.getCache().evictAll();
+        counter.reset();
+    }
+
+    @Nested
+    @DisplayName("Кількість SQL-запитів")
+    class StatementBudgetTests {
+
+        @Test
+        @DisplayName("Новий кошик створюється без запиту користувача")
+        void getCart_NewCart_DoesNotQueryUser() throws Exception {
+            evictSecondLevelCache();
+
+            mockMvc.perform(get("/api/cart").header("Authorization", bearer))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.user").doesNotExist());
+
+            assertEquals(0, counter.loads(AppUser.class));
+            // SELECT cart + INSERT cart
+            assertEquals(2, counter.statements());
+        }
+
+        @Test
+        @DisplayName("Додавання до кошика без запиту користувача")
+        void addToCart_DoesNotQueryUser() throws Exception {
+            mockMvc.perform(get("/api/cart").header("Authorization", bearer)).andExpect(status().isOk());
+            evictSecondLevelCache();
+
+            mockMvc.perform(post("/api/cart/add")
+                            .header("Authorization", bearer)
+                            .param("bookId", book.getId().toString())
+                            .param("quantity", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].quantity").value(2));
+
+            assertEquals(0, counter.loads(AppUser.class));
+            // SELECT cart with items and books, SELECT book, INSERT cart item, and a sequence
+            // call when the current block of cart item ids is used up
+            assertTrue(counter.statements() <= 4, "statements: " + counter.statements());
+        }
+    }
+
+    @Nested
+    @DisplayName("Великий кошик")
+    class LargeCartTests {
+        private static final int LINES = 200;
+
+        private final List<Book> extraBooks = new ArrayList<>();
+
+        @BeforeEach
+        void fillCart() {
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart.addOrIncrement(book, 1);
+            for (int i = 1; i < LINES; i++) {
+                Book extra = new Book();
+                extra.setTitle("Extra " + i);
+                extra.setAuthor("Author");
+                extra.setPrice(1.0);
+                extra.setStock(100);
+                extra = bookRepository.save(extra);
+                extraBooks.add(extra);
+                cart.addOrIncrement(extra, 1);
+            }
+            cartRepository.save(cart);
+        }
+
+        @AfterEach
+        void removeBooks() {
+            cartRepository.findByUserId(user.getId()).ifPresent(cartRepository::delete);
+            bookRepository.deleteAll(extraBooks);
+        }
+
+        @Test
+        @DisplayName("Кошик з усіма книгами читається одним запитом")
+        void getCart_SingleStatement() throws Exception {
+            evictSecondLevelCache();
+
+            mockMvc.perform(get("/api/cart").header("Authorization", bearer))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(LINES))
+                    .andExpect(jsonPath("$.items[" + (LINES - 1) + "].book.title").exists());
+
+            assertEquals(1, counter.statements());
+        }
+
+        @Test
+        @DisplayName("Зміна кількості записує лише один рядок")
+        void updateCartItem_WritesSingleRow() throws Exception {
+            counter.reset();
+
+            mockMvc.perform(put("/api/cart/update")
+                            .header("Authorization", bearer)
+                            .param("bookId", book.getId().toString())
+                            .param("quantity", "3"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(LINES));
+
+            assertEquals(1, counter.updates());
+            assertEquals(0, counter.inserts());
+            assertEquals(0, counter.deletes());
+        }
+
+        @Test
+        @DisplayName("Додавання нової книги вставляє лише один рядок")
+        void addToCart_InsertsSingleRow() throws Exception {
+            Book newBook = extraBooks.get(extraBooks.size() - 1);
+            mockMvc.perform(delete("/api/cart/remove")
+                            .header("Authorization", bearer)
+                            .param("bookId", newBook.getId().toString()))
+                    .andExpect(status().isOk());
+            counter.reset();
+
+            mockMvc.perform(post("/api/cart/add")
+                            .header("Authorization", bearer)
+                            .param("bookId", newBook.getId().toString())
+                            .param("quantity", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(LINES));
+
+            assertEquals(1, counter.inserts());
+            assertEquals(0, counter.updates());
+            assertEquals(0, counter.deletes());
+        }
+
+        @Test
+        @DisplayName("Пакетна зміна кошика виконує сталу кількість запитів")
+        void applyChanges_ConstantRoundTrips() throws Exception {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < 50; i++) {
+                body.append(i == 0 ? "" : ",")
+                        .append("{\"bookId\":").append(extraBooks.get(i).getId()).append(",\"quantity\":2}");
+            }
+            body.append(",{\"bookId\":").append(book.getId()).append(",\"quantity\":0}]");
+            evictSecondLevelCache();
+
+            mockMvc.perform(patch("/api/cart")
+                            .header("Authorization", bearer)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body.toString()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(LINES - 1));
+
+            assertEquals(50, counter.updates());
+            assertEquals(1, counter.deletes());
+            // SELECT books, SELECT cart with items and books, one batch of updates and the
+            // delete - independent of the number of lines
+            assertEquals(4, counter.statements());
+        }
+
+        @Test
+        @DisplayName("Пакетна зміна з нестачею товару нічого не змінює")
+        void applyChanges_NotEnoughStock() throws Exception {
+            mockMvc.perform(patch("/api/cart")
+                            .header("Authorization", bearer)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[{\"bookId\":" + extraBooks.get(0).getId() + ",\"quantity\":3},"
+                                    + "{\"bookId\":" + book.getId() + ",\"quantity\":11}]"))
+                    .andExpect(status().isBadRequest());
+
+            transactionTemplate.executeWithoutResult(status -> {
+                Cart cart = cartRepository.findByUserId(user.getId()).orElseThrow();
+                assertEquals(LINES, cart.getItems().size());
+                assertEquals(1, cart.findItem(extraBooks.get(0).getId()).orElseThrow().getQuantity());
+            });
+        }
+
+        @Test
+        @DisplayName("Дублікати книг відхиляються")
+        void applyChanges_DuplicateBook() throws Exception {
+            mockMvc.perform(patch("/api/cart")
+                            .header("Authorization", bearer)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[{\"bookId\":" + book.getId() + ",\"quantity\":1},"
+                                    + "{\"bookId\":" + book.getId() + ",\"quantity\":2}]"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Видалення книги видаляє лише один рядок")
+        void removeFromCart_DeletesSingleRow() throws Exception {
+            counter.reset();
+
+            mockMvc.perform(delete("/api/cart/remove")
+                            .header("Authorization", bearer)
+                            .param("bookId", book.getId().toString()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(LINES - 1));
+
+            assertEquals(1, counter.deletes());
+            assertEquals(0, counter.updates());
+            assertEquals(0, counter.inserts());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.bookstore.controller;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Order;
+import com.example.bookstore.model.OrderItem;
+import com.example.bookstore.model.OrderSummary;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderSummaryRepository;
+import com.example.bookstore.repository.UserRepository;
+import com.example.bookstore.service.CheckoutService;
+import com.example.bookstore.service.TokenService;
+import com.example.bookstore.support.StatementCounter;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Not transactional on purpose, see {@link CartControllerTest}.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderControllerTest {
+    private static final int ORDERS = 20;
+    private static final int BOOKS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private StatementCounter counter;
+    private AppUser user;
+    private final List<Book> books = new ArrayList<>();
+    private Long firstOrderId;
+    private String bearer;
+
+    @BeforeEach
+    void setUp() {
+        counter = new StatementCounter(entityManagerFactory);
+
+        user = new AppUser();
+        user.setUsername("orderuser");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Order Book " + i);
+            book.setAuthor("Order Author");
+            book.setPrice(5.0 + i);
+            book.setStock(100);
+            books.add(bookRepository.save(book));
+        }
+
+        // pairs of orders share a creation time, so pages must break ties by id
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setCreatedAt(now.minusMinutes(i / 2));
+            List<OrderItem> items = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                OrderItem item = new OrderItem();
+                item.setBook(books.get((i + j) % BOOKS));
+                item.setQuantity(1);
+                item.setPrice(item.getBook().getPrice());
+                items.add(item);
+            }
+            order.setItems(items);
+            order.setTotalPrice(items.stream().mapToDouble(OrderItem::getPrice).sum());
+            order = orderRepository.save(order);
+            orderSummaryRepository.save(OrderSummary.of(order));
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
+        }
+
+        bearer = "Bearer " + tokenService.issueToken(
+                new AuthenticatedUser(user.getId(), user.getUsername(), null, user.getRole()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        List<OrderSummary> summaries = orderSummaryRepository.findLatestByUserId(user.getId(), Limit.unlimited());
+        orderSummaryRepository.deleteAll(summaries);
+        orderRepository.deleteAllById(summaries.stream().map(OrderSummary::getOrderId).toList());
+        cartRepository.findByUserId(user.getId()).ifPresent(cartRepository::delete);
+        userRepository.delete(user);
+        bookRepository.deleteAll(books);
+    }
+
+    @Nested
+    @DisplayName("Кількість SQL-запитів")
+    class StatementBudgetTests {
+
+        @Test
+        @DisplayName("Сторінка історії читається одним запитом до order_summary")
+        void getUserOrders_SingleStatement() throws Exception {
+            entityManagerFactory.getCache().evictAll();
+            counter.reset();
+
+            mockMvc.perform(get("/api/orders")
+                            .header("Authorization", bearer)
+                            .param("limit", "10"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(10))
+                    .andExpect(jsonPath("$.items[0].itemCount").value(3))
+                    .andExpect(jsonPath("$.items[9].titles.length()").value(3))
+                    .andExpect(jsonPath("$.items[0].userId").doesNotExist())
+                    .andExpect(jsonPath("$.next").exists());
+
+            // no join to order_item or book, no count
+            assertEquals(1, counter.statements());
+        }
+
+        @Test
+        @DisplayName("Деталі замовлення з позиціями і книгами одним запитом")
+        void getOrder_SingleStatement() throws Exception {
+            entityManagerFactory.getCache().evictAll();
+            counter.reset();
+
+            mockMvc.perform(get("/api/orders/" + firstOrderId).header("Authorization", bearer))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items.length()").value(3))
+                    .andExpect(jsonPath("$.items[2].book.title").exists());
+
+            assertEquals(1, counter.statements());
+        }
+
+        @Test
+        @DisplayName("Чуже замовлення недоступне")
+        void getOrder_OtherUser_BadRequest() throws Exception {
+            String other = "Bearer " + tokenService.issueToken(
+                    new AuthenticatedUser(user.getId() + 1000, "someoneelse", null, user.getRole()));
+
+            mockMvc.perform(get("/api/orders/" + firstOrderId).header("Authorization", other))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("Пагінація за курсором")
+    class KeysetTests {
+
+        private List<Long> walk(String direction, int limit) throws Exception {
+            List<Long> ids = new ArrayList<>();
+            String cursor = null;
+            do {
+                var request = get("/api/orders")
+                        .header("Authorization", bearer)
+                        .param("limit", String.valueOf(limit))
+                        .param("direction", direction);
+                if (cursor != null) {
+                    request.param("cursor", cursor);
+                }
+                String body = mockMvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString();
+                List<Number> page = JsonPath.read(body, "$.items[*].orderId");
+                page.forEach(id -> ids.add(id.longValue()));
+                cursor = JsonPath.read(body, "$.next");
+            } while (cursor != null);
+            return ids;
+        }
+
+        @Test
+        @DisplayName("Обхід від найновіших повертає кожне замовлення рівно один раз")
+        void walk_Descending_VisitsEveryOrderOnce() throws Exception {
+            List<Long> ids = walk("desc", 7);
+
+            assertEquals(ORDERS, ids.size());
+            assertEquals(ORDERS, ids.stream().distinct().count());
+            List<OrderSummary> expected = orderSummaryRepository.findLatestByUserId(user.getId(), Limit.unlimited());
+            assertEquals(expected.stream().map(OrderSummary::getOrderId).toList(), ids);
+        }
+
+        @Test
+        @DisplayName("Обхід від найстаріших - зворотний порядок")
+        void walk_Ascending_ReversesOrder() throws Exception {
+            List<Long> descending = walk("desc", 6);
+            List<Long> ascending = walk("asc", 6);
+
+            List<Long> reversed = new ArrayList<>(descending);
+            Collections.reverse(reversed);
+            assertEquals(reversed, ascending);
+        }
+
+        @Test
+        @DisplayName("Сортування за неіндексованою колонкою відхиляється")
+        void getUserOrders_UnindexedSort_BadRequest() throws Exception {
+            mockMvc.perform(get("/api/orders")
+                            .header("Authorization", bearer)
+                            .param("sortBy", "totalPrice"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Некоректний курсор")
+        void getUserOrders_InvalidCursor_BadRequest() throws Exception {
+            mockMvc.perform(get("/api/orders")
+                            .header("Authorization", bearer)
+                            .param("cursor", "not-a-cursor"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("Idempotency-Key")
+    class IdempotencyTests {
+
+        @Test
+        @DisplayName("Повтор з тим самим ключем не створює друге замовлення")
+        void createOrder_SameKey_PlacedOnce() throws Exception {
+            mockMvc.perform(post("/api/cart/add")
+                            .header("Authorization", bearer)
+                            .param("bookId", books.get(0).getId().toString())
+                            .param("quantity", "1"))
+                    .andExpect(status().isOk());
+            long before = orderRepository.count();
+
+            String first = mockMvc.perform(post("/api/orders")
+                            .header("Authorization", bearer)
+                            .header("Idempotency-Key", "retry-1"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                    .andReturn().getResponse().getContentAsString();
+
+            mockMvc.perform(post("/api/orders")
+                            .header("Authorization", bearer)
+                            .header("Idempotency-Key", "retry-1"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Idempotent-Replayed", "true"))
+                    .andExpect(content().json(first));
+
+            assertEquals(before + 1, orderRepository.count());
+            assertEquals(ORDERS + 1, orderSummaryRepository.findLatestByUserId(user.getId(), Limit.unlimited()).size());
+            assertEquals(99, bookRepository.findById(books.get(0).getId()).orElseThrow().getStock());
+        }
+    }
+
+    @Nested
+    @DisplayName("Асинхронне оформлення вимкнене")
+    class SyncCheckoutTests {
+
+        @Test
+        @DisplayName("Черга асинхронного оформлення не створюється, статус не знайдено")
+        void checkoutStatus_AsyncDisabled_NotFound() throws Exception {
+            assertTrue(applicationContext.getBeansOfType(CheckoutService.class).isEmpty());
+
+            mockMvc.perform(get("/api/orders/checkouts/unknown")
+                            .header("Authorization", bearer))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Checkout not found"));
+        }
+    }
+}
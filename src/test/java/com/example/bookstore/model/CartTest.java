@@ -0,0 +1,89 @@
+package com.example.bookstore.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartTest {
+    private static final int LINES = 500;
+
+    private Cart cart;
+
+    @BeforeEach
+    void setUp() {
+        cart = new Cart();
+        for (long id = 1; id <= LINES; id++) {
+            cart.addOrIncrement(book(id), 1);
+        }
+    }
+
+    private static Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setPrice(1.0);
+        return book;
+    }
+
+    @Test
+    void addOrIncrement_ExistingBook_IncrementsSingleLine() {
+        CartItem item = cart.addOrIncrement(book(250), 3);
+
+        assertEquals(LINES, cart.getItems().size());
+        assertEquals(4, item.getQuantity());
+        assertSame(item, cart.findItem(250L).orElseThrow());
+    }
+
+    @Test
+    void addOrIncrement_NewBook_AddsLineLinkedToCart() {
+        CartItem item = cart.addOrIncrement(book(LINES + 1), 2);
+
+        assertEquals(LINES + 1, cart.getItems().size());
+        assertSame(cart, item.getCart());
+        assertEquals(LINES + 1L, item.getBookId());
+    }
+
+    @Test
+    void setQuantity_ChangesOnlyThatLine() {
+        cart.setQuantity(400L, 7);
+
+        assertEquals(7, cart.findItem(400L).orElseThrow().getQuantity());
+        assertEquals(LINES - 1 + 7, cart.getItems().stream().mapToInt(CartItem::getQuantity).sum());
+    }
+
+    @Test
+    void setQuantity_BookNotInCart_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> cart.setQuantity(LINES + 1L, 1));
+    }
+
+    @Test
+    void remove_DropsLine() {
+        assertTrue(cart.remove(123L));
+        assertFalse(cart.remove(123L));
+
+        assertEquals(LINES - 1, cart.getItems().size());
+        assertTrue(cart.findItem(123L).isEmpty());
+    }
+
+    @Test
+    void clear_RemovesAllLines() {
+        cart.clear();
+
+        assertTrue(cart.getItems().isEmpty());
+    }
+
+    @Test
+    void getItems_IsReadOnlyLiveView() {
+        var items = cart.getItems();
+
+        assertThrows(UnsupportedOperationException.class, items::clear);
+        cart.remove(1L);
+        assertEquals(LINES - 1, items.size());
+    }
+
+    @Test
+    void getItems_KeepsInsertionOrder() {
+        assertEquals(1L, cart.getItems().iterator().next().getBookId());
+    }
+}
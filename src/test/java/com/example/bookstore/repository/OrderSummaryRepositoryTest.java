@@ -0,0 +1,121 @@
+package com.example.bookstore.repository;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Order;
+import com.example.bookstore.model.OrderItem;
+import com.example.bookstore.model.OrderSummary;
+import com.example.bookstore.support.StatementCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-summary-test")
+class OrderSummaryRepositoryTest {
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private AppUser user;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = new AppUser();
+        user.setUsername("summary-user");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+        for (int i = 0; i < 4; i++) {
+            Book book = new Book();
+            book.setTitle("Summary Book " + i);
+            book.setAuthor("Summary Author");
+            book.setPrice(2.0);
+            book.setStock(10);
+            books.add(bookRepository.save(book));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderSummaryRepository.deleteAll();
+        orderRepository.deleteAll();
+        userRepository.delete(user);
+        bookRepository.deleteAll(books);
+    }
+
+    private Order saveOrder() {
+        Order order = new Order();
+        order.setUser(user);
+        order.setCreatedAt(LocalDateTime.now());
+        List<OrderItem> items = new ArrayList<>();
+        for (Book book : books) {
+            OrderItem item = new OrderItem();
+            item.setBook(book);
+            item.setQuantity(2);
+            item.setPrice(book.getPrice());
+            items.add(item);
+        }
+        order.setItems(items);
+        order.setTotalPrice(16.0);
+        return orderRepository.save(order);
+    }
+
+    @Test
+    @DisplayName("Новий підсумок вставляється без попереднього SELECT")
+    void save_NewSummary_NoSelect() {
+        OrderSummary summary = OrderSummary.of(saveOrder());
+        StatementCounter counter = new StatementCounter(entityManagerFactory);
+        counter.reset();
+
+        orderSummaryRepository.save(summary);
+
+        assertEquals(1, counter.inserts());
+        assertEquals(1, counter.statements());
+        assertFalse(summary.isNew());
+    }
+
+    @Test
+    @DisplayName("schema.sql заповнює підсумки замовлень, яким їх бракує")
+    void schema_BackfillsMissingSummaries() {
+        Order order = saveOrder();
+        assertTrue(orderSummaryRepository.findById(order.getId()).isEmpty());
+
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        // a second run leaves the backfilled row alone
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+
+        OrderSummary summary = orderSummaryRepository.findById(order.getId()).orElseThrow();
+        assertEquals(user.getId(), summary.getUserId());
+        assertEquals(8, summary.getItemCount());
+        assertEquals(16.0, summary.getTotalPrice());
+        assertEquals(List.of("Summary Book 0", "Summary Book 1", "Summary Book 2"), summary.getTitles());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.bookstore.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * schema.sql against a database laid out before ids came from sequences: identity columns,
+ * rows already in every table.
+ */
+class SchemaMigrationTest {
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:schema-migration-test;DB_CLOSE_DELAY=-1");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE app_user (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "username VARCHAR(255) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL, email VARCHAR(255), "
+                + "role VARCHAR(50) NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE book (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "title VARCHAR(255) NOT NULL, author VARCHAR(255) NOT NULL, price DOUBLE NOT NULL, "
+                + "category VARCHAR(255), stock INT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE cart (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, user_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE cart_items (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "book_id BIGINT, cart_id BIGINT, quantity INT NOT NULL)");
+        // created by schema.sql of earlier versions, never used
+        jdbcTemplate.execute("CREATE TABLE cart_item (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE order_item (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "user_id BIGINT, created_at TIMESTAMP NOT NULL, total_price DOUBLE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "book_id BIGINT NOT NULL, order_id BIGINT NOT NULL, quantity INT NOT NULL, price DOUBLE NOT NULL)");
+        for (int i = 0; i < 70; i++) {
+            jdbcTemplate.update("INSERT INTO book (title, author, price, stock) VALUES (?, 'Old Author', 1.0, 1)",
+                    "Old Book " + i);
+        }
+        jdbcTemplate.update("INSERT INTO app_user (username, password, role) VALUES ('old', 'hash', 'ROLE_USER')");
+    }
+
+    private void runSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    }
+
+    private long nextValue(String sequence) {
+        return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+    }
+
+    @Test
+    @DisplayName("Ідентичність знімається, послідовності стартують за найбільшим id")
+    void schema_MigratesIdentityTables() {
+        runSchema();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE COLUMN_NAME = 'ID' AND IS_IDENTITY = 'YES' AND TABLE_NAME IN "
+                + "('APP_USER', 'BOOK', 'CART', 'CART_ITEMS', 'ORDERS', 'ORDER_ITEMS')", Integer.class));
+        // the block v - 49 .. v handed out by the pooled optimizer lies above every existing id
+        assertTrue(nextValue("book_seq") - 49 > 70);
+        assertTrue(nextValue("app_user_seq") - 49 > 1);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                + "WHERE TABLE_NAME IN ('CART_ITEM', 'ORDER_ITEM')", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Нова база отримує лише таблиці, на які відображені сутності")
+    void schema_FreshDatabase_CreatesMappedTables() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+
+        runSchema();
+
+        assertEquals(List.of("CART_ITEMS", "ORDER_ITEMS"), jdbcTemplate.queryForList(
+                "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' "
+                        + "AND TABLE_NAME IN ('CART_ITEM', 'CART_ITEMS', 'ORDER_ITEM', 'ORDER_ITEMS') "
+                        + "ORDER BY TABLE_NAME", String.class));
+        assertTrue(nextValue("cart_item_seq") > 0);
+    }
+
+    @Test
+    @DisplayName("Повторний запуск не повертає послідовність назад")
+    void schema_RerunKeepsSequences() {
+        runSchema();
+        long first = nextValue("book_seq");
+        nextValue("book_seq");
+
+        runSchema();
+
+        assertTrue(nextValue("book_seq") > first + 50);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bookstore.repository;
+
+import com.example.bookstore.model.Book;
+import com.example.bookstore.service.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:second-level-cache-test")
+class SecondLevelCacheTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        book = new Book();
+        book.setTitle("Cached Book");
+        book.setAuthor("Cache Author");
+        book.setPrice(12.5);
+        book.setCategory("CacheTest");
+        book.setStock(7);
+        book = bookRepository.save(book);
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteById(book.getId());
+    }
+
+    @Test
+    @DisplayName("Повторне читання книги з кешу другого рівня")
+    void findById_SecondReadHitsCache() {
+        bookRepository.findById(book.getId());
+        long statementsAfterFirstRead = statistics.getPrepareStatementCount();
+
+        Book cached = bookRepository.findById(book.getId()).orElseThrow();
+
+        assertEquals(7, cached.getStock());
+        assertEquals(statementsAfterFirstRead, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics("book").getHitCount());
+    }
+
+    @Test
+    @DisplayName("Оновлення stock інвалідує кеш")
+    void updateStock_RefreshesCachedEntity() {
+        bookRepository.findById(book.getId());
+
+        bookService.updateStock(book.getId(), 3);
+
+        assertEquals(3, bookRepository.findById(book.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("Кеш запиту findByCategory та його інвалідація")
+    void findByCategory_UsesQueryCacheUntilBookTableChanges() {
+        bookRepository.findByCategory("CacheTest");
+        bookRepository.findByCategory("CacheTest");
+        assertEquals(1, statistics.getQueryRegionStatistics("books-by-category").getHitCount());
+
+        bookService.updateStock(book.getId(), 1);
+
+        assertEquals(1, bookRepository.findByCategory("CacheTest").get(0).getStock());
+        assertEquals(1, statistics.getQueryRegionStatistics("books-by-category").getHitCount());
+    }
+
+    @Test
+    @DisplayName("Статистика кешу доступна як метрики")
+    void cacheStatistics_AreExposedAsMetrics() {
+        assertFalse(meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", "book")
+                .functionCounters()
+                .isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Book;
+import com.example.bookstore.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:book-import-test")
+class BookImportServiceTest {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM book WHERE author = 'Import Author'");
+    }
+
+    private static BookFeedReader.Row row(int line, String title, double price) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Import Author");
+        book.setPrice(price);
+        book.setStock(3);
+        return new BookFeedReader.Row(line, book, null);
+    }
+
+    private long count(String title) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM book WHERE title = ? AND author = 'Import Author'", Long.class, title);
+    }
+
+    @Test
+    @DisplayName("Книга, вставлена паралельно під час імпорту, оновлюється, а не дублюється")
+    void importBooks_ConcurrentInsert_UpdatedNotDuplicated() throws Exception {
+        CountDownLatch inserted = new CountDownLatch(1);
+        // another writer inserts the same book and commits only after the import's lookup missed it
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbcTemplate.update("INSERT INTO book (id, title, author, price, stock) "
+                            + "VALUES (NEXT VALUE FOR book_seq, 'Raced', 'Import Author', 1.0, 1)");
+                    inserted.countDown();
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(inserted.await(5, TimeUnit.SECONDS));
+
+        BookImportService.ImportResult result = bookImportService.importBooks(
+                List.of(row(1, "Raced", 12.0), row(2, "Calm", 8.0)).iterator());
+        other.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, result.created());
+        assertEquals(1, result.updated());
+        assertEquals(1, count("Raced"));
+        assertEquals(1, count("Calm"));
+        assertEquals(12.0, jdbcTemplate.queryForObject(
+                "SELECT price FROM book WHERE title = 'Raced' AND author = 'Import Author'", Double.class));
+    }
+
+    @Test
+    @DisplayName("Друга книга з тією ж назвою й автором відхиляється базою")
+    void save_DuplicateTitleAndAuthor_Rejected() {
+        bookImportService.importBooks(List.of(row(1, "Unique", 5.0)).iterator());
+        Book duplicate = row(1, "Unique", 6.0).book();
+
+        assertThrows(DataIntegrityViolationException.class, () -> bookRepository.saveAndFlush(duplicate));
+        assertEquals(1, count("Unique"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Trigram index against the LIKE query it replaced, on a catalog of 1M books in H2.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class BookSearchIndexBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndexBenchmarkTest.class);
+    private static final int BOOKS = 1_000_000;
+    private static final int LIMIT = 20;
+    private static final String[] QUERIES = {"java", "volume 4242", "author 77", "concurrency", "zzz"};
+    private static final String[] WORDS = {"Java", "Spring", "Concurrency", "Patterns", "Practice", "Design",
+            "Effective", "Modern", "Systems", "Data"};
+
+    // BookRepository.findByTitleOrAuthor as every search ran it before the index, reading all matches
+    private static final String LIKE_SQL = "SELECT id, title, author FROM book WHERE title LIKE ? OR author LIKE ?";
+
+    private static String title(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " volume " + i;
+    }
+
+    private static String author(int i) {
+        return "Author " + (i % 10_000);
+    }
+
+    @Test
+    @DisplayName("Індекс проти LIKE на 1M книг")
+    void search_IndexVersusLike() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:search-benchmark", "sa", "")) {
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE book (id BIGINT PRIMARY KEY, title VARCHAR(255), author VARCHAR(255))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO book VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= BOOKS; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, title(i));
+                    insert.setString(3, author(i));
+                    insert.addBatch();
+                    if (i % 10_000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+            }
+
+            BookSearchIndex index = new BookSearchIndex();
+            long started = System.nanoTime();
+            index.rebuild(() -> IntStream.rangeClosed(1, BOOKS).mapToObj(i -> {
+                Book book = new Book();
+                book.setId((long) i);
+                book.setTitle(title(i));
+                book.setAuthor(author(i));
+                return book;
+            }).iterator());
+            log.info("Index of {} books built in {} ms", BOOKS, (System.nanoTime() - started) / 1_000_000);
+
+            long likeTotal = 0;
+            long indexTotal = 0;
+            try (PreparedStatement like = connection.prepareStatement(LIKE_SQL)) {
+                for (String query : QUERIES) {
+                    long[] likeNanos = time(5, () -> {
+                        like.setString(1, "%" + query + "%");
+                        like.setString(2, "%" + query + "%");
+                        try (ResultSet rows = like.executeQuery()) {
+                            while (rows.next()) {
+                                rows.getLong(1);
+                                rows.getString(2);
+                                rows.getString(3);
+                            }
+                        }
+                    });
+                    long[] indexNanos = time(50, () -> index.search(query, LIMIT));
+                    long likeMedian = likeNanos[likeNanos.length / 2];
+                    long indexMedian = indexNanos[indexNanos.length / 2];
+                    log.info("'{}': LIKE median {} us, index median {} us, p99 {} us", query,
+                            likeMedian / 1000, indexMedian / 1000, indexNanos[indexNanos.length * 99 / 100] / 1000);
+                    likeTotal += likeMedian;
+                    indexTotal += indexMedian;
+                }
+            }
+            // a word in a fifth of the titles scores as many candidates as LIKE scans rows,
+            // so only the sum over the queries is compared
+            assertTrue(indexTotal < likeTotal, "index " + indexTotal + " ns, LIKE " + likeTotal + " ns");
+        }
+    }
+
+    private static long[] time(int runs, Run run) throws Exception {
+        run.run();
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long started = System.nanoTime();
+            run.run();
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private interface Run {
+        void run() throws Exception;
+    }
+}
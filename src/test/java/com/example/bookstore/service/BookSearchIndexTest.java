@@ -0,0 +1,133 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.rebuild(List.of(
+                book(1L, "Effective Java", "Joshua Bloch"),
+                book(2L, "Java Concurrency in Practice", "Brian Goetz"),
+                book(3L, "Clean Code", "Robert Martin"),
+                book(4L, "Javascript Patterns", "Stoyan Stefanov")));
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPrice(10.0);
+        book.setStock(5);
+        return book;
+    }
+
+    @Test
+    @DisplayName("Пошук за назвою без урахування регістру")
+    void search_MatchesTitleCaseInsensitive() {
+        List<Long> result = index.search("JAVA", 10);
+
+        assertEquals(3, result.size());
+        assertTrue(result.containsAll(List.of(1L, 2L, 4L)));
+    }
+
+    @Test
+    @DisplayName("Пошук за автором")
+    void search_MatchesAuthor() {
+        assertEquals(List.of(2L), (index.search("goetz", 10)));
+    }
+
+    @Test
+    @DisplayName("Цілі слова на початку назви мають вищий рейтинг")
+    void search_RanksWholeWordPrefixMatchesFirst() {
+        List<Long> result = index.search("java", 10);
+
+        assertEquals(List.of(2L, 1L, 4L), result);
+    }
+
+    @Test
+    @DisplayName("Триграми без підрядка не дають збігу")
+    void search_RequiresSubstring() {
+        // "ava c" shares trigrams with several titles but is a substring only of book 2
+        assertEquals(List.of(2L), (index.search("ava c", 10)));
+        assertTrue(index.search("code clean", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Обмеження кількості результатів")
+    void search_RespectsLimit() {
+        assertEquals(1, index.search("java", 1).size());
+    }
+
+    @Test
+    @DisplayName("Оновлення та видалення документів")
+    void indexAndRemove_UpdateResults() {
+        index.index(book(5L, "Modern Java in Action", "Raoul-Gabriel Urma"));
+        assertTrue((index.search("modern", 10)).contains(5L));
+
+        index.index(book(5L, "Kotlin in Action", "Dmitry Jemerov"));
+        assertTrue(index.search("modern", 10).isEmpty());
+        assertEquals(List.of(5L), (index.search("kotlin", 10)));
+
+        index.remove(5L);
+        assertTrue(index.search("kotlin", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    @DisplayName("Перебудова не змінює індекс, поки не завершиться")
+    void rebuild_SwapsInNewIndex() {
+        index.rebuild(List.of(book(7L, "Refactoring", "Martin Fowler")));
+
+        assertTrue(index.search("java", 10).isEmpty());
+        assertEquals(List.of(7L), index.search("fowler", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("Пошук під час перебудови бачить увесь старий або новий індекс")
+    void rebuild_ConcurrentSearchesNeverSeePartialIndex() throws Exception {
+        List<Book> catalog = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            catalog.add(book(id, "Java volume " + id, "Author " + id));
+        }
+        index.rebuild(catalog);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread rebuilder = new Thread(() -> {
+            for (int i = 0; i < 20; i++) {
+                index.rebuild(catalog);
+            }
+            done.set(true);
+        });
+        rebuilder.start();
+        while (!done.get()) {
+            assertEquals(5, index.search("java volume", 5).size());
+        }
+        rebuilder.join();
+    }
+
+    @Test
+    @DisplayName("Занадто короткий запит")
+    void search_ShortQuery_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> index.search("ja", 10));
+    }
+
+    @Test
+    @DisplayName("Книга без id не індексується")
+    void index_TransientBook_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> index.index(book(null, "Title", "Author")));
+    }
+}
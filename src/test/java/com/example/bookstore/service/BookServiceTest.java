@@ -1,19 +1,29 @@
 package com.example.bookstore.service;
 
 import com.example.bookstore.model.Book;
+import com.example.bookstore.model.StockMovement;
 import com.example.bookstore.repository.BookRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -25,6 +35,21 @@ class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookSearchIndex searchIndex;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private Inventory inventory;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private BookService bookService;
 
@@ -48,13 +73,39 @@ class BookServiceTest {
         @Test
         @DisplayName("Успішне додавання книги")
         void addBook_Success() {
-            when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+            when(bookRepository.saveAndFlush(any(Book.class))).thenReturn(testBook);
 
             Book result = bookService.addBook(testBook);
 
             assertNotNull(result);
             assertEquals("Test Book", result.getTitle());
-            verify(bookRepository).save(testBook);
+            verify(bookRepository).saveAndFlush(testBook);
+            verify(searchIndex).index(testBook);
+            StockMovement movement = recordedMovement();
+            assertEquals(StockMovement.Type.RESTOCK, movement.getType());
+            assertEquals(10, movement.getDelta());
+        }
+
+        @Test
+        @DisplayName("Книга без залишку не потрапляє в журнал")
+        void addBook_NoStock_NoMovement() {
+            testBook.setStock(0);
+            when(bookRepository.saveAndFlush(any(Book.class))).thenReturn(testBook);
+
+            bookService.addBook(testBook);
+
+            verifyNoInteractions(stockLedger);
+        }
+
+        @Test
+        @DisplayName("Книга з тією ж назвою й автором - помилка до журналу та індексу")
+        void addBook_Duplicate_NothingRecorded() {
+            when(bookRepository.saveAndFlush(any(Book.class)))
+                    .thenThrow(new DataIntegrityViolationException("uk_book_title_author"));
+
+            assertThrows(DataIntegrityViolationException.class, () -> bookService.addBook(testBook));
+
+            verifyNoInteractions(stockLedger, searchIndex);
         }
     }
 
@@ -76,6 +127,65 @@ class BookServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getBooksAfter")
+    class GetBooksAfterTests {
+
+        private Book bookWithId(long id) {
+            Book book = new Book();
+            book.setId(id);
+            return book;
+        }
+
+        @Test
+        @DisplayName("Перша сторінка з наступною")
+        void getBooksAfter_FirstPageHasNext() {
+            when(bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3)))
+                    .thenReturn(List.of(bookWithId(1), bookWithId(2), bookWithId(3)));
+
+            Slice<Book> result = bookService.getBooksAfter(null, 2);
+
+            assertEquals(2, result.getContent().size());
+            assertEquals(2L, result.getContent().get(1).getId());
+            assertTrue(result.hasNext());
+        }
+
+        @Test
+        @DisplayName("Остання сторінка")
+        void getBooksAfter_LastPage() {
+            when(bookRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3)))
+                    .thenReturn(List.of(bookWithId(3)));
+
+            Slice<Book> result = bookService.getBooksAfter(2L, 2);
+
+            assertEquals(1, result.getContent().size());
+            assertFalse(result.hasNext());
+        }
+
+        @Test
+        @DisplayName("Невалідний limit")
+        void getBooksAfter_InvalidLimit() {
+            assertThrows(IllegalArgumentException.class, () -> bookService.getBooksAfter(null, 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("streamAllBooks")
+    class StreamAllBooksTests {
+
+        @Test
+        @DisplayName("Кожна книга передається та від'єднується")
+        void streamAllBooks_DetachesEachBook() {
+            when(bookRepository.streamAllOrderedById()).thenReturn(Stream.of(testBook));
+            List<Book> consumed = new ArrayList<>();
+
+            bookService.streamAllBooks(consumed::add);
+
+            assertEquals(List.of(testBook), consumed);
+            verify(entityManager).detach(testBook);
+        }
+    }
+
     @Nested
     @DisplayName("getBooksByCategory")
     class GetBooksByCategoryTests {
@@ -110,24 +220,54 @@ class BookServiceTest {
         @Test
         @DisplayName("Пошук книг за назвою або автором")
         void searchBooks_Success() {
-            List<Book> books = Arrays.asList(testBook);
-            when(bookRepository.findByTitleOrAuthor("Test")).thenReturn(books);
+            when(searchIndex.search("Test", BookService.DEFAULT_SEARCH_LIMIT)).thenReturn(List.of(1L));
+            when(bookRepository.findAllById(List.of(1L))).thenReturn(List.of(testBook));
 
             List<Book> result = bookService.searchBooks("Test");
 
             assertNotNull(result);
             assertEquals(1, result.size());
+            verify(bookRepository, never()).findByTitleOrAuthor(any(), any());
+        }
+
+        @Test
+        @DisplayName("Результати у порядку індексу з поточним залишком")
+        void searchBooks_KeepsRankingWithLiveRows() {
+            Book second = new Book();
+            second.setId(2L);
+            second.setTitle("Test Two");
+            second.setStock(0);
+            when(searchIndex.search("Test", BookService.DEFAULT_SEARCH_LIMIT)).thenReturn(List.of(2L, 3L, 1L));
+            // book 3 was deleted after it was indexed
+            when(bookRepository.findAllById(List.of(2L, 3L, 1L))).thenReturn(List.of(testBook, second));
+
+            List<Book> result = bookService.searchBooks("Test");
+
+            assertEquals(List.of(2L, 1L), result.stream().map(Book::getId).toList());
+            assertEquals(0, result.get(0).getStock());
         }
 
         @Test
         @DisplayName("Пошук без результатів")
         void searchBooks_NoResults() {
-            when(bookRepository.findByTitleOrAuthor("XYZ123")).thenReturn(Arrays.asList());
+            when(searchIndex.search("XYZ123", BookService.DEFAULT_SEARCH_LIMIT)).thenReturn(List.of());
 
             List<Book> result = bookService.searchBooks("XYZ123");
 
             assertTrue(result.isEmpty());
         }
+
+        @Test
+        @DisplayName("Короткий запит - пошук через LIKE")
+        void searchBooks_ShortQuery_FallsBackToRepository() {
+            when(bookRepository.findByTitleOrAuthor("Te", Limit.of(BookService.DEFAULT_SEARCH_LIMIT)))
+                    .thenReturn(Arrays.asList(testBook));
+
+            List<Book> result = bookService.searchBooks("Te");
+
+            assertEquals(1, result.size());
+            verifyNoInteractions(searchIndex);
+        }
     }
 
     @Nested
@@ -141,6 +281,7 @@ class BookServiceTest {
 
             assertDoesNotThrow(() -> bookService.deleteBook(1L));
             verify(bookRepository).deleteById(1L);
+            verify(searchIndex).remove(1L);
         }
     }
 
@@ -148,22 +289,44 @@ class BookServiceTest {
     @DisplayName("updateStock")
     class UpdateStockTests {
 
+        @BeforeEach
+        void setUp() {
+            lenient().when(inventory.whileSettled(any()))
+                    .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        }
+
         @Test
         @DisplayName("Успішне оновлення stock")
         void updateStock_Success() {
-            when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+            when(bookRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testBook));
             when(bookRepository.save(any(Book.class))).thenReturn(testBook);
 
             Book result = bookService.updateStock(1L, 50);
 
             assertNotNull(result);
             assertEquals(50, result.getStock());
+            verify(inventory).whileSettled(any());
+            verify(searchIndex).index(testBook);
+            StockMovement movement = recordedMovement();
+            assertEquals(StockMovement.Type.CORRECTION, movement.getType());
+            assertEquals(40, movement.getDelta());
+        }
+
+        @Test
+        @DisplayName("Той самий stock - без запису в журнал")
+        void updateStock_Unchanged_NoMovement() {
+            when(bookRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testBook));
+            when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+
+            bookService.updateStock(1L, 10);
+
+            verifyNoInteractions(stockLedger);
         }
 
         @Test
         @DisplayName("Книга не знайдена")
         void updateStock_BookNotFound() {
-            when(bookRepository.findById(999L)).thenReturn(Optional.empty());
+            when(bookRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
             assertThrows(IllegalArgumentException.class, () -> bookService.updateStock(999L, 50));
         }
@@ -171,9 +334,50 @@ class BookServiceTest {
         @Test
         @DisplayName("Від'ємний stock - помилка")
         void updateStock_NegativeStock() {
-            when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-
             assertThrows(IllegalArgumentException.class, () -> bookService.updateStock(1L, -1));
+            verifyNoInteractions(bookRepository, stockLedger);
+        }
+    }
+
+    @Nested
+    @DisplayName("restock")
+    class RestockTests {
+
+        @Test
+        @DisplayName("Поповнення додається до залишку і записується в журнал")
+        void restock_Success() {
+            when(bookRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testBook));
+            when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+
+            Book result = bookService.restock(1L, 5);
+
+            assertEquals(15, result.getStock());
+            verify(searchIndex).index(testBook);
+            StockMovement movement = recordedMovement();
+            assertEquals(StockMovement.Type.RESTOCK, movement.getType());
+            assertEquals(5, movement.getDelta());
+            assertEquals(1L, movement.getBookId());
+        }
+
+        @Test
+        @DisplayName("Недодатна кількість - помилка")
+        void restock_NonPositiveQuantity() {
+            assertThrows(IllegalArgumentException.class, () -> bookService.restock(1L, 0));
+            verifyNoInteractions(bookRepository, stockLedger);
         }
+
+        @Test
+        @DisplayName("Книга не знайдена")
+        void restock_BookNotFound() {
+            when(bookRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
+
+            assertThrows(IllegalArgumentException.class, () -> bookService.restock(999L, 5));
+        }
+    }
+
+    private StockMovement recordedMovement() {
+        ArgumentCaptor<StockMovement> captor = ArgumentCaptor.forClass(StockMovement.class);
+        verify(stockLedger).record(captor.capture());
+        return captor.getValue();
     }
 }
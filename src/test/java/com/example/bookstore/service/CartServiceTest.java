@@ -12,11 +12,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,7 +37,6 @@ class CartServiceTest {
     @Mock
     private SecurityUtils securityUtils;
 
-    @InjectMocks
     private CartService cartService;
 
     private AppUser testUser;
@@ -43,6 +45,8 @@ class CartServiceTest {
 
     @BeforeEach
     void setUp() {
+        cartService = new CartService(new JpaCartStore(cartRepository), bookRepository, securityUtils);
+
         testUser = new AppUser();
         testUser.setId(1L);
         testUser.setUsername("testuser");
@@ -109,7 +113,154 @@ class CartServiceTest {
             Cart result = cartService.addToCart(1L, 2);
 
             assertNotNull(result);
+            assertEquals(2, testCart.findItem(1L).orElseThrow().getQuantity());
             verify(cartRepository).save(any(Cart.class));
         }
+
+        @Test
+        @DisplayName("Повторне додавання збільшує кількість")
+        void addToCart_ExistingItem_IncrementsQuantity() {
+            testCart.addOrIncrement(testBook, 1);
+            when(securityUtils.getCurrentUser()).thenReturn(testUser);
+            when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(testCart));
+            when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+            when(cartRepository.save(any(Cart.class))).thenReturn(testCart);
+
+            cartService.addToCart(1L, 2);
+
+            assertEquals(1, testCart.getItems().size());
+            assertEquals(3, testCart.findItem(1L).orElseThrow().getQuantity());
+        }
+    }
+
+    @Nested
+    @DisplayName("updateCartItem / removeFromCart / clearCart")
+    class MutationTests {
+        @BeforeEach
+        void setUpCart() {
+            testCart.addOrIncrement(testBook, 1);
+            when(securityUtils.getCurrentUser()).thenReturn(testUser);
+            when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(testCart));
+        }
+
+        @Test
+        @DisplayName("Оновлення кількості")
+        void updateCartItem_SetsQuantity() {
+            when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+            when(cartRepository.save(any(Cart.class))).thenReturn(testCart);
+
+            cartService.updateCartItem(1L, 5);
+
+            assertEquals(5, testCart.findItem(1L).orElseThrow().getQuantity());
+        }
+
+        @Test
+        @DisplayName("Оновлення книги, якої немає в кошику")
+        void updateCartItem_NotInCart() {
+            Book other = new Book();
+            other.setId(2L);
+            other.setStock(10);
+            when(bookRepository.findById(2L)).thenReturn(Optional.of(other));
+
+            assertThrows(IllegalArgumentException.class, () -> cartService.updateCartItem(2L, 1));
+        }
+
+        @Test
+        @DisplayName("Видалення з кошика")
+        void removeFromCart_RemovesItem() {
+            when(cartRepository.save(any(Cart.class))).thenReturn(testCart);
+
+            cartService.removeFromCart(1L);
+
+            assertTrue(testCart.getItems().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Очищення кошика")
+        void clearCart_RemovesAllItems() {
+            cartService.clearCart();
+
+            assertTrue(testCart.getItems().isEmpty());
+            verify(cartRepository).save(testCart);
+        }
+    }
+
+    @Nested
+    @DisplayName("applyChanges")
+    class ApplyChangesTests {
+        private Book secondBook;
+
+        @BeforeEach
+        void setUpBooks() {
+            secondBook = new Book();
+            secondBook.setId(2L);
+            secondBook.setTitle("Second Book");
+            secondBook.setPrice(10.0);
+            secondBook.setStock(1);
+        }
+
+        private Map<Long, Integer> changes(Object... pairs) {
+            Map<Long, Integer> changes = new LinkedHashMap<>();
+            for (int i = 0; i < pairs.length; i += 2) {
+                changes.put((Long) pairs[i], (Integer) pairs[i + 1]);
+            }
+            return changes;
+        }
+
+        @Test
+        @DisplayName("Додавання, оновлення і видалення одним запитом до книг")
+        void applyChanges_MixedLines() {
+            Book removed = new Book();
+            removed.setId(3L);
+            testCart.addOrIncrement(testBook, 1);
+            testCart.addOrIncrement(removed, 4);
+            when(securityUtils.getCurrentUser()).thenReturn(testUser);
+            when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(testCart));
+            when(bookRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(testBook, secondBook));
+            when(cartRepository.save(testCart)).thenReturn(testCart);
+
+            cartService.applyChanges(changes(1L, 5, 2L, 1, 3L, 0));
+
+            assertEquals(5, testCart.findItem(1L).orElseThrow().getQuantity());
+            assertEquals(1, testCart.findItem(2L).orElseThrow().getQuantity());
+            assertTrue(testCart.findItem(3L).isEmpty());
+            verify(bookRepository).findAllById(any());
+            verify(bookRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("Недостатньо товару — кошик не змінюється")
+        void applyChanges_NotEnoughStock_ChangesNothing() {
+            testCart.addOrIncrement(testBook, 1);
+            when(bookRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(testBook, secondBook));
+
+            assertThrows(IllegalStateException.class,
+                    () -> cartService.applyChanges(changes(1L, 3, 2L, 2)));
+
+            assertEquals(1, testCart.findItem(1L).orElseThrow().getQuantity());
+            verify(cartRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Невідома книга")
+        void applyChanges_UnknownBook() {
+            when(bookRepository.findAllById(Set.of(1L, 99L))).thenReturn(List.of(testBook));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> cartService.applyChanges(changes(1L, 1, 99L, 1)));
+        }
+
+        @Test
+        @DisplayName("Від'ємна кількість")
+        void applyChanges_NegativeQuantity() {
+            assertThrows(IllegalArgumentException.class, () -> cartService.applyChanges(changes(1L, -1)));
+            verifyNoInteractions(bookRepository, cartRepository);
+        }
+
+        @Test
+        @DisplayName("Порожній список змін")
+        void applyChanges_Empty() {
+            assertThrows(IllegalArgumentException.class, () -> cartService.applyChanges(Map.of()));
+        }
     }
 }
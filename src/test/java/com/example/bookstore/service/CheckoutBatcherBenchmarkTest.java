@@ -0,0 +1,182 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.config.SecurityUtils;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderSummaryRepository;
+import com.example.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Orders per second and checkout latency with and without batching, {@code BUYERS} concurrent
+ * buyers ordering one of a few hot books. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:checkout-batch-benchmark")
+class CheckoutBatcherBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(CheckoutBatcherBenchmarkTest.class);
+    private static final int BOOKS = 4;
+    private static final int BUYERS = 32;
+    private static final int ORDERS_PER_BUYER = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private Inventory inventory;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    private final List<Book> books = new ArrayList<>();
+    private final List<AppUser> buyers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Benchmark Book " + i);
+            book.setAuthor("Benchmark Author");
+            book.setPrice(10.0);
+            book.setStock(1_000_000);
+            books.add(bookRepository.save(book));
+        }
+        for (int i = 0; i < BUYERS; i++) {
+            AppUser user = new AppUser();
+            user.setUsername("benchmark-buyer" + i);
+            user.setPassword("secret");
+            buyers.add(userRepository.save(user));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderSummaryRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll(buyers);
+        bookRepository.deleteAll(books);
+    }
+
+    @Test
+    @DisplayName("Пакетне оформлення проти оформлення по одному")
+    void checkout_BatchedVersusSingle() throws Exception {
+        // warm-up of both paths, then the measured runs
+        run(false);
+        run(true);
+        for (boolean batched : new boolean[]{false, true}) {
+            long ordersBefore = orderRepository.count();
+            Result result = run(batched);
+            log.info("{}: {} orders/s, p50 {} us, p99 {} us", batched ? "batched" : "single",
+                    result.ordersPerSecond(), result.percentile(50) / 1000, result.percentile(99) / 1000);
+            assertEquals(ordersBefore + (long) BUYERS * ORDERS_PER_BUYER, orderRepository.count());
+        }
+    }
+
+    private Result run(boolean batched) throws Exception {
+        CheckoutBatcher batcher = new CheckoutBatcher(orderService, cartService, inventory, securityUtils,
+                transactionManager, batched, Duration.ofMillis(5), 50, 1000, Duration.ofSeconds(30));
+        batcher.start();
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        try {
+            for (int b = 0; b < BUYERS; b++) {
+                AppUser buyer = buyers.get(b);
+                Long bookId = books.get(b % BOOKS).getId();
+                results.add(pool.submit(() -> {
+                    AuthenticatedUser principal = new AuthenticatedUser(
+                            buyer.getId(), buyer.getUsername(), null, buyer.getRole());
+                    SecurityContextHolder.getContext().setAuthentication(
+                            UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities()));
+                    try {
+                        start.await();
+                        long[] nanos = new long[ORDERS_PER_BUYER];
+                        for (int i = 0; i < ORDERS_PER_BUYER; i++) {
+                            cartService.addToCart(bookId, 1);
+                            long started = System.nanoTime();
+                            batcher.createOrder();
+                            nanos[i] = System.nanoTime() - started;
+                        }
+                        return nanos;
+                    } finally {
+                        SecurityContextHolder.clearContext();
+                    }
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            long[] latencies = new long[BUYERS * ORDERS_PER_BUYER];
+            int i = 0;
+            for (Future<long[]> result : results) {
+                for (long nanos : result.get(5, TimeUnit.MINUTES)) {
+                    latencies[i++] = nanos;
+                }
+            }
+            long elapsed = System.nanoTime() - started;
+            Arrays.sort(latencies);
+            return new Result(latencies, elapsed);
+        } finally {
+            pool.shutdownNow();
+            batcher.stop();
+        }
+    }
+
+    private record Result(long[] sortedNanos, long elapsedNanos) {
+        long ordersPerSecond() {
+            return sortedNanos.length * 1_000_000_000L / elapsedNanos;
+        }
+
+        long percentile(int p) {
+            return sortedNanos[Math.min(sortedNanos.length - 1, sortedNanos.length * p / 100)];
+        }
+    }
+}
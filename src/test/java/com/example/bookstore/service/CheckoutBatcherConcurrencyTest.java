@@ -0,0 +1,135 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderSummaryRepository;
+import com.example.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout-batch-test",
+        "bookstore.checkout.batch.enabled=true",
+        "bookstore.checkout.batch.window=50ms"
+})
+class CheckoutBatcherConcurrencyTest {
+    private static final int STOCK = 25;
+    private static final int BUYERS = 40;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    private Book hotBook;
+    private final List<AppUser> buyers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        hotBook = new Book();
+        hotBook.setTitle("Batched Book");
+        hotBook.setAuthor("Popular Author");
+        hotBook.setPrice(15.0);
+        hotBook.setStock(STOCK);
+        hotBook = bookRepository.save(hotBook);
+
+        for (int i = 0; i < BUYERS; i++) {
+            AppUser user = new AppUser();
+            user.setUsername("batch-buyer" + i);
+            user.setPassword("secret");
+            user = userRepository.save(user);
+            buyers.add(user);
+
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart.addOrIncrement(hotBook, 1);
+            cartRepository.save(cart);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderSummaryRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll(buyers);
+        bookRepository.delete(hotBook);
+    }
+
+    @Test
+    @DisplayName("Пакетні замовлення не продають більше, ніж є на складі, і комітяться разом")
+    void concurrentCheckouts_BatchedWithoutOversell() throws Exception {
+        long batchesBefore = checkoutBatcher.batches();
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (AppUser buyer : buyers) {
+            results.add(pool.submit(() -> {
+                AuthenticatedUser principal = new AuthenticatedUser(
+                        buyer.getId(), buyer.getUsername(), null, buyer.getRole());
+                SecurityContextHolder.getContext().setAuthentication(
+                        UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities()));
+                start.await();
+                try {
+                    checkoutBatcher.createOrder();
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        int placed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                placed++;
+            }
+        }
+
+        assertEquals(STOCK, placed);
+        assertEquals(0, bookRepository.findById(hotBook.getId()).orElseThrow().getStock());
+        assertEquals(STOCK, orderRepository.count());
+        assertEquals(STOCK, orderSummaryRepository.count());
+        assertTrue(checkoutBatcher.batches() - batchesBefore < BUYERS,
+                "expected fewer transactions than orders");
+    }
+}
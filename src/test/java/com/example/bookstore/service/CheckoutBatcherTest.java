@@ -0,0 +1,174 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.OverloadedException;
+import com.example.bookstore.config.SecurityUtils;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutBatcherTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private Inventory inventory;
+
+    @Mock
+    private SecurityUtils securityUtils;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CheckoutBatcher batcher;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        batcher = new CheckoutBatcher(orderService, cartService, inventory,
+                securityUtils, transactionManager, true, Duration.ofMillis(5), 50, 100, Duration.ofSeconds(10));
+        book = new Book();
+        book.setId(1L);
+        book.setTitle("Hot Book");
+        book.setPrice(10.0);
+        book.setStock(2);
+    }
+
+    private CheckoutBatcher.Request request(long userId) {
+        AppUser user = new AppUser();
+        user.setId(userId);
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.addOrIncrement(book, 1);
+        return new CheckoutBatcher.Request(user, cart, new CompletableFuture<>(), new AtomicBoolean());
+    }
+
+    @Nested
+    @DisplayName("process")
+    class ProcessTests {
+        @Test
+        @DisplayName("Замовлення пакета списуються одним злитим оновленням, зайві відхиляються")
+        void process_MergesDecrementsAndRejectsUnsatisfiable() {
+            List<CheckoutBatcher.Request> batch = List.of(request(1), request(2), request(3));
+            when(orderService.findBooks(any())).thenReturn(Map.of(1L, book));
+            when(inventory.take(Map.of(1L, 2))).thenReturn(List.of());
+
+            batcher.process(batch);
+
+            assertEquals(10.0, batch.get(0).result().join().getTotalPrice());
+            assertNotNull(batch.get(1).result().join());
+            CompletionException rejected = assertThrows(CompletionException.class, () -> batch.get(2).result().join());
+            assertEquals("Not enough stock for book: Hot Book", rejected.getCause().getMessage());
+            verify(inventory, times(1)).take(any());
+            verify(orderService, times(1)).saveAll(argThat(orders -> orders.size() == 2));
+            verify(cartService).removeOrdered(batch.get(0).user(), batch.get(0).cart());
+            verify(cartService).removeOrdered(batch.get(1).user(), batch.get(1).cart());
+            verify(cartService, never()).removeOrdered(eq(batch.get(2).user()), any());
+            verify(orderService, never()).createOrder(any(), any());
+            assertEquals(1, batcher.batches());
+        }
+
+        @Test
+        @DisplayName("Конфлікт списання - кожне замовлення повторюється окремо")
+        void process_DecrementConflict_FallsBackToSingleOrders() {
+            List<CheckoutBatcher.Request> batch = List.of(request(1), request(2));
+            when(orderService.findBooks(any())).thenReturn(Map.of(1L, book));
+            when(inventory.take(any())).thenReturn(List.of(1L));
+            Order placed = new Order();
+            // placed from the copies the callers checked out, not from the live carts
+            when(orderService.createOrder(batch.get(0).user(), batch.get(0).cart())).thenReturn(placed);
+            when(orderService.createOrder(batch.get(1).user(), batch.get(1).cart()))
+                    .thenThrow(new IllegalStateException("Not enough stock for book: Hot Book"));
+
+            batcher.process(batch);
+
+            assertSame(placed, batch.get(0).result().join());
+            assertThrows(CompletionException.class, () -> batch.get(1).result().join());
+            verify(orderService, never()).saveAll(any());
+            assertEquals(1, batcher.fallbacks());
+        }
+
+        @Test
+        @DisplayName("Помилка JVM не залишає викликачів чекати")
+        void process_Error_FailsPendingRequests() {
+            List<CheckoutBatcher.Request> batch = List.of(request(1), request(2));
+            when(orderService.findBooks(any())).thenThrow(new StackOverflowError());
+
+            assertThrows(StackOverflowError.class, () -> batcher.process(batch));
+
+            for (CheckoutBatcher.Request request : batch) {
+                CompletionException failed = assertThrows(CompletionException.class, () -> request.result().join());
+                assertEquals("Checkout failed, try again", failed.getCause().getMessage());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("createOrder")
+    class CreateOrderTests {
+        @Test
+        @DisplayName("Без пакетування замовлення оформлюється напряму")
+        void createOrder_Disabled_PlacesDirectly() {
+            CheckoutBatcher direct = new CheckoutBatcher(orderService, cartService, inventory,
+                    securityUtils, transactionManager, false, Duration.ofMillis(5), 50, 100, Duration.ofSeconds(10));
+            AppUser user = new AppUser();
+            Order order = new Order();
+            when(securityUtils.getCurrentUser()).thenReturn(user);
+            when(orderService.createOrder(user)).thenReturn(order);
+
+            assertSame(order, direct.createOrder());
+        }
+
+        @Test
+        @DisplayName("Порожній кошик відхиляється без постановки в чергу")
+        void createOrder_EmptyCart() {
+            AppUser user = new AppUser();
+            when(securityUtils.getCurrentUser()).thenReturn(user);
+            when(cartService.getCart(user)).thenReturn(new Cart());
+
+            assertThrows(IllegalStateException.class, () -> batcher.createOrder());
+        }
+
+        @Test
+        @DisplayName("Замовлення, яке не взяли в пакет вчасно, відкликається")
+        void createOrder_NotPickedUp_Withdrawn() {
+            // the worker is never started, so nothing takes the request
+            CheckoutBatcher stalled = new CheckoutBatcher(orderService, cartService, inventory,
+                    securityUtils, transactionManager, true, Duration.ofMillis(5), 50, 100, Duration.ofMillis(50));
+            CheckoutBatcher.Request request = request(1);
+            when(securityUtils.getCurrentUser()).thenReturn(request.user());
+            when(cartService.getCart(request.user())).thenReturn(request.cart());
+
+            OverloadedException ex = assertThrows(OverloadedException.class, stalled::createOrder);
+
+            assertEquals("Checkout was not picked up in time, try again later", ex.getMessage());
+            verifyNoInteractions(orderService);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.OverloadedException;
+import com.example.bookstore.config.SecurityUtils;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.model.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutServiceTest {
+
+    @Mock
+    private CheckoutBatcher checkoutBatcher;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private SecurityUtils securityUtils;
+
+    private CheckoutService checkoutService;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        checkoutService = new CheckoutService(checkoutBatcher, cartService, securityUtils, 1, 1, Duration.ZERO);
+        Book book = new Book();
+        book.setId(1L);
+        Cart cart = new Cart();
+        cart.addOrIncrement(book, 1);
+        lenient().when(cartService.getCart()).thenReturn(cart);
+        lenient().when(securityUtils.getCurrentUserId()).thenReturn(1L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        checkoutService.shutdown();
+    }
+
+    private Order order(long id) {
+        Order order = new Order();
+        order.setId(id);
+        return order;
+    }
+
+    private void awaitFinished(CheckoutTicket ticket) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!ticket.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(ticket.isFinished());
+    }
+
+    @Nested
+    @DisplayName("submit")
+    class SubmitTests {
+        @Test
+        @DisplayName("Замовлення оформлюється у фоновому потоці")
+        void submit_CompletesInBackground() throws Exception {
+            when(checkoutBatcher.createOrder()).thenReturn(order(42L));
+
+            CheckoutTicket ticket = checkoutService.submit();
+            awaitFinished(ticket);
+
+            assertEquals(CheckoutTicket.Status.COMPLETED, ticket.getStatus());
+            assertEquals(42L, ticket.getOrderId());
+        }
+
+        @Test
+        @DisplayName("Помилка оформлення зберігається в квитку")
+        void submit_FailureRecorded() throws Exception {
+            when(checkoutBatcher.createOrder()).thenThrow(new IllegalStateException("Not enough stock for book: X"));
+
+            CheckoutTicket ticket = checkoutService.submit();
+            awaitFinished(ticket);
+
+            assertEquals(CheckoutTicket.Status.FAILED, ticket.getStatus());
+            assertEquals("Not enough stock for book: X", ticket.getError());
+        }
+
+        @Test
+        @DisplayName("Порожній кошик відхиляється до постановки в чергу")
+        void submit_EmptyCart() {
+            when(cartService.getCart()).thenReturn(new Cart());
+
+            assertThrows(IllegalStateException.class, () -> checkoutService.submit());
+            verifyNoInteractions(checkoutBatcher);
+        }
+
+        @Test
+        @DisplayName("Повторне оформлення того ж користувача повертає той самий квиток")
+        void submit_SameUserInFlight_SameTicket() throws Exception {
+            when(checkoutBatcher.createOrder()).thenAnswer(inv -> {
+                release.await();
+                return order(1L);
+            });
+
+            CheckoutTicket first = checkoutService.submit();
+            CheckoutTicket second = checkoutService.submit();
+
+            assertSame(first, second);
+        }
+
+        @Test
+        @DisplayName("Переповнена черга відхиляє нові замовлення")
+        void submit_QueueFull_Rejected() {
+            when(checkoutBatcher.createOrder()).thenAnswer(inv -> {
+                release.await();
+                return order(1L);
+            });
+
+            // one running on the single worker, one waiting in the queue of capacity 1
+            checkoutService.submit();
+            when(securityUtils.getCurrentUserId()).thenReturn(2L);
+            checkoutService.submit();
+            when(securityUtils.getCurrentUserId()).thenReturn(3L);
+
+            assertThrows(OverloadedException.class, () -> checkoutService.submit());
+        }
+    }
+
+    @Nested
+    @DisplayName("getTicket")
+    class GetTicketTests {
+        @Test
+        @DisplayName("Чужий квиток не видно")
+        void getTicket_OtherUser_NotFound() {
+            when(checkoutBatcher.createOrder()).thenReturn(order(1L));
+            CheckoutTicket ticket = checkoutService.submit();
+
+            when(securityUtils.getCurrentUserId()).thenReturn(2L);
+
+            assertThrows(IllegalArgumentException.class, () -> checkoutService.getTicket(ticket.getId()));
+        }
+
+        @Test
+        @DisplayName("Завершені квитки видаляються після TTL")
+        void purgeFinished_RemovesExpired() throws Exception {
+            when(checkoutBatcher.createOrder()).thenReturn(order(1L));
+            CheckoutTicket ticket = checkoutService.submit();
+            awaitFinished(ticket);
+            Thread.sleep(5);
+
+            checkoutService.purgeFinished();
+
+            assertThrows(IllegalArgumentException.class, () -> checkoutService.getTicket(ticket.getId()));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.OverloadedException;
+import com.example.bookstore.config.SecurityUtils;
+import com.example.bookstore.model.IdempotencyRecord;
+import com.example.bookstore.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    @Mock
+    private SecurityUtils securityUtils;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(recordRepository, securityUtils, new ObjectMapper(),
+                transactionManager, Duration.ofHours(1), Duration.ofSeconds(5), 100);
+        lenient().when(securityUtils.getCurrentUserId()).thenReturn(1L);
+    }
+
+    private ResponseEntity<?> placeOrder() {
+        int id = executions.incrementAndGet();
+        return ResponseEntity.ok(Map.of("id", id));
+    }
+
+    @Nested
+    @DisplayName("execute")
+    class ExecuteTests {
+        @Test
+        @DisplayName("Повтор з тим самим ключем відтворює першу відповідь без звернення до бази")
+        void execute_Duplicate_ReplaysFromMemory() {
+            idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder);
+            clearInvocations(recordRepository);
+
+            ResponseEntity<?> replay = idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder);
+
+            assertEquals(1, executions.get());
+            assertEquals(200, replay.getStatusCode().value());
+            assertEquals("{\"id\":1}", replay.getBody());
+            assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+            verifyNoInteractions(recordRepository);
+        }
+
+        @Test
+        @DisplayName("Різні ключі та різні користувачі виконуються окремо")
+        void execute_DifferentScopes_RunSeparately() {
+            idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder);
+            idempotencyService.execute("key-2", IdempotencyServiceTest.this::placeOrder);
+            when(securityUtils.getCurrentUserId()).thenReturn(2L);
+            idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder);
+
+            assertEquals(3, executions.get());
+        }
+
+        @Test
+        @DisplayName("Одночасний дублікат чекає на перший запит")
+        void execute_ConcurrentDuplicate_WaitsForInFlight() throws Exception {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService pool = Executors.newFixedThreadPool(2);
+            Future<ResponseEntity<?>> first = pool.submit(() -> idempotencyService.execute("key-1", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return placeOrder();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<ResponseEntity<?>> second = pool.submit(
+                    () -> idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder));
+
+            release.countDown();
+            ResponseEntity<?> replay = second.get(5, TimeUnit.SECONDS);
+            first.get(5, TimeUnit.SECONDS);
+            pool.shutdown();
+
+            assertEquals(1, executions.get());
+            assertEquals("{\"id\":1}", replay.getBody());
+        }
+
+        @Test
+        @DisplayName("Невдалий запит не запам'ятовується")
+        void execute_Failure_NotRemembered() {
+            assertThrows(IllegalStateException.class, () -> idempotencyService.execute("key-1", () -> {
+                throw new IllegalStateException("Cart is empty");
+            }));
+
+            idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder);
+
+            assertEquals(1, executions.get());
+            verify(recordRepository, times(1)).saveAndFlush(any());
+        }
+
+        @Test
+        @DisplayName("Після перезапуску відповідь відтворюється із запису в базі")
+        void execute_AfterRestart_ReplaysFromDatabase() {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setUserId(1L);
+            record.setIdempotencyKey("key-1");
+            record.setStatus(202);
+            record.setLocation("/api/orders/checkouts/abc");
+            record.setBody("{\"id\":\"abc\"}");
+            record.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+            when(recordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.of(record));
+
+            ResponseEntity<?> replay = idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder);
+
+            assertEquals(0, executions.get());
+            assertEquals(202, replay.getStatusCode().value());
+            assertEquals(URI.create("/api/orders/checkouts/abc"), replay.getHeaders().getLocation());
+        }
+
+        @Test
+        @DisplayName("Помилка збереження запису не блокує повтори")
+        void execute_StoreFails_RetriesRunAgain() {
+            when(recordRepository.saveAndFlush(any()))
+                    .thenThrow(new DataAccessResourceFailureException("database is down"))
+                    .thenAnswer(invocation -> invocation.getArgument(0));
+
+            assertThrows(DataAccessResourceFailureException.class,
+                    () -> idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder));
+            ResponseEntity<?> retry = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder));
+
+            assertEquals(2, executions.get());
+            assertEquals(Map.of("id", 2), retry.getBody());
+        }
+
+        @Test
+        @DisplayName("Ключ, збережений іншим екземпляром, відтворює його відповідь")
+        void execute_StoredConcurrently_ReplaysTheirs() {
+            IdempotencyRecord theirs = new IdempotencyRecord();
+            theirs.setStatus(200);
+            theirs.setBody("{\"id\":42}");
+            theirs.setCreatedAt(LocalDateTime.now());
+            when(recordRepository.findByUserIdAndIdempotencyKey(1L, "key-1"))
+                    .thenReturn(Optional.empty())
+                    .thenReturn(Optional.of(theirs));
+            when(recordRepository.saveAndFlush(any()))
+                    .thenThrow(new DataIntegrityViolationException("uk_idempotency_user_key"));
+
+            ResponseEntity<?> replay = idempotencyService.execute("key-1", IdempotencyServiceTest.this::placeOrder);
+
+            assertEquals("{\"id\":42}", replay.getBody());
+            assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        }
+
+        @Test
+        @DisplayName("Дублікат не чекає довше за wait-timeout")
+        void execute_InFlightTooLong_Overloaded() throws Exception {
+            IdempotencyService impatient = new IdempotencyService(recordRepository, securityUtils, new ObjectMapper(),
+                    transactionManager, Duration.ofHours(1), Duration.ofMillis(50), 100);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService pool = Executors.newSingleThreadExecutor();
+            Future<ResponseEntity<?>> first = pool.submit(() -> impatient.execute("key-1", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return placeOrder();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(OverloadedException.class,
+                    () -> impatient.execute("key-1", IdempotencyServiceTest.this::placeOrder));
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            pool.shutdown();
+            assertEquals(1, executions.get());
+        }
+
+        @Test
+        @DisplayName("Задовгий ключ відхиляється")
+        void execute_KeyTooLong() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> idempotencyService.execute("k".repeat(256), IdempotencyServiceTest.this::placeOrder));
+        }
+    }
+}
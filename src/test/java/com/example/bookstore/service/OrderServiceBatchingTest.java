@@ -0,0 +1,130 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.model.Order;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderSummaryRepository;
+import com.example.bookstore.repository.UserRepository;
+import com.example.bookstore.support.StatementCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statement count and latency of placing a 50-line order, the case insert batching is for.
+ * Latency is only logged: it depends on the machine, the statement count does not.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-batching-test")
+class OrderServiceBatchingTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderServiceBatchingTest.class);
+    private static final int LINES = 50;
+    private static final int WARMUP = 20;
+    private static final int ORDERS = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementCounter counter;
+    private AppUser user;
+    private final List<Book> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        counter = new StatementCounter(entityManagerFactory);
+
+        user = new AppUser();
+        user.setUsername("bulk-buyer");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        for (int i = 0; i < LINES; i++) {
+            Book book = new Book();
+            book.setTitle("Batch Book " + i);
+            book.setAuthor("Batch Author");
+            book.setPrice(3.0 + i);
+            book.setStock(1000);
+            books.add(bookRepository.save(book));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderSummaryRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.delete(user);
+        bookRepository.deleteAll(books);
+    }
+
+    private void fillCart() {
+        Cart cart = cartRepository.findByUserId(user.getId()).orElseGet(() -> {
+            Cart created = new Cart();
+            created.setUser(user);
+            return created;
+        });
+        for (Book book : books) {
+            cart.addOrIncrement(book, 1);
+        }
+        cartRepository.save(cart);
+    }
+
+    @Test
+    @DisplayName("Замовлення на 50 позицій записується пакетами")
+    void createOrder_FiftyLines_BatchesInserts() {
+        for (int i = 0; i < WARMUP; i++) {
+            fillCart();
+            orderService.createOrder(user);
+        }
+
+        long statements = 0;
+        long nanos = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            fillCart();
+            counter.reset();
+            long started = System.nanoTime();
+            Order order = orderService.createOrder(user);
+            nanos += System.nanoTime() - started;
+            statements += counter.statements();
+            assertEquals(LINES, order.getItems().size());
+        }
+
+        long perOrder = statements / ORDERS;
+        log.info("createOrder with {} lines: {} statements, {} us per order",
+                LINES, perOrder, nanos / ORDERS / 1000);
+        // cart and books, order, one batch of items, the summary, the cart lines, sequence calls
+        assertTrue(perOrder <= 12, "statements per order: " + perOrder);
+    }
+}
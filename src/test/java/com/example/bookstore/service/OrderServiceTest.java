@@ -4,6 +4,7 @@ import com.example.bookstore.config.SecurityUtils;
 import com.example.bookstore.model.*;
 import com.example.bookstore.repository.BookRepository;
 import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderSummaryRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -12,17 +13,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Slice;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,15 +34,24 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderSummaryRepository orderSummaryRepository;
+
     @Mock
     private CartService cartService;
 
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private Inventory inventory;
+
     @Mock
     private SecurityUtils securityUtils;
 
+    @Mock
+    private ApplicationEventPublisher events;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -63,9 +75,77 @@ class OrderServiceTest {
             Cart emptyCart = new Cart();
             emptyCart.setUser(testUser);
             when(securityUtils.getCurrentUser()).thenReturn(testUser);
-            when(cartService.getCart()).thenReturn(emptyCart);
+            when(cartService.getCart(testUser)).thenReturn(emptyCart);
+
+            assertThrows(IllegalStateException.class, () -> orderService.createOrder());
+        }
+
+        @Test
+        @DisplayName("Успішне створення замовлення - stock списується одним батчем")
+        void createOrder_Success_DecrementsStockInBatch() {
+            Book first = book(1L, 10);
+            Book second = book(2L, 5);
+            Cart cart = cartWith(first, 2, second, 1);
+            when(securityUtils.getCurrentUser()).thenReturn(testUser);
+            when(cartService.getCart(testUser)).thenReturn(cart);
+            when(bookRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(first, second));
+            when(inventory.take(Map.of(1L, 2, 2L, 1))).thenReturn(List.of());
+
+            Order order = orderService.createOrder();
+
+            assertEquals(2, order.getItems().size());
+            assertEquals(2 * 10.0 + 5.0, order.getTotalPrice());
+            verify(bookRepository, never()).save(any());
+            verify(orderRepository).saveAll(List.of(order));
+            verify(orderSummaryRepository).saveAll(argThat(summaries ->
+                    summaries.iterator().next().getItemCount() == 3));
+            verify(cartService).removeOrdered(testUser, cart);
+            verify(events).publishEvent(argThat((Object event) ->
+                    event instanceof OrderPlacedEvent placed && placed.getOrders().equals(List.of(order))));
+        }
+
+        @Test
+        @DisplayName("Недостатньо stock під час списання - замовлення відхилено")
+        void createOrder_GuardedDecrementFails() {
+            Book first = book(1L, 10);
+            Book second = book(2L, 5);
+            Cart cart = cartWith(first, 2, second, 1);
+            when(securityUtils.getCurrentUser()).thenReturn(testUser);
+            when(cartService.getCart(testUser)).thenReturn(cart);
+            when(bookRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(first, second));
+            when(inventory.take(any())).thenReturn(List.of(2L));
+
+            IllegalStateException ex = assertThrows(IllegalStateException.class, () -> orderService.createOrder());
+
+            assertEquals("Not enough stock for book: Book 2", ex.getMessage());
+            verify(orderRepository, never()).saveAll(any());
+            verify(cartService, never()).removeOrdered(any(), any());
+        }
+
+        @Test
+        @DisplayName("Ціна береться з актуальної книги, а не з копії в кошику")
+        void createOrder_UsesCurrentBookPrice() {
+            Cart cart = cartWith(book(1L, 10), 1, book(2L, 5), 1);
+            when(securityUtils.getCurrentUser()).thenReturn(testUser);
+            when(cartService.getCart(testUser)).thenReturn(cart);
+            when(bookRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(book(1L, 12), book(2L, 5)));
+            when(inventory.take(any())).thenReturn(List.of());
+
+            Order order = orderService.createOrder();
+
+            assertEquals(12.0 + 5.0, order.getTotalPrice());
+        }
+
+        @Test
+        @DisplayName("Книгу видалено з каталогу")
+        void createOrder_BookDeleted() {
+            Cart cart = cartWith(book(1L, 10), 1, book(2L, 5), 1);
+            when(securityUtils.getCurrentUser()).thenReturn(testUser);
+            when(cartService.getCart(testUser)).thenReturn(cart);
+            when(bookRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(book(1L, 10)));
 
             assertThrows(IllegalStateException.class, () -> orderService.createOrder());
+            verify(inventory, never()).take(any());
         }
 
         @Test
@@ -80,22 +160,74 @@ class OrderServiceTest {
     @Nested
     @DisplayName("getUserOrders")
     class GetUserOrdersTests {
-        @Test
-        @DisplayName("Отримання замовлень користувача")
-        void getUserOrders_Success() {
-            Order order = new Order();
-            order.setId(1L);
-            order.setUser(testUser);
+        private OrderSummary order(long id) {
+            OrderSummary order = new OrderSummary();
+            order.setOrderId(id);
+            order.setUserId(testUser.getId());
+            order.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
             order.setTotalPrice(100.0);
-            Page<Order> page = new PageImpl<>(List.of(order));
+            return order;
+        }
 
-            when(securityUtils.getCurrentUser()).thenReturn(testUser);
-            when(orderRepository.findByUserId(anyLong(), any())).thenReturn(page);
+        @Test
+        @DisplayName("Перша сторінка - найновіші замовлення без запиту кількості")
+        void getUserOrders_FirstPage() {
+            when(securityUtils.getCurrentUserId()).thenReturn(1L);
+            when(orderSummaryRepository.findLatestByUserId(1L, Limit.of(3))).thenReturn(List.of(order(3), order(2), order(1)));
+
+            Slice<OrderSummary> result = orderService.getUserOrders(null, 2, "createdAt", "desc");
+
+            assertEquals(2, result.getContent().size());
+            assertTrue(result.hasNext());
+            verify(orderSummaryRepository, never()).count();
+            verifyNoInteractions(orderRepository);
+        }
+
+        @Test
+        @DisplayName("Наступна сторінка продовжується від курсора")
+        void getUserOrders_AfterCursor() {
+            OrderService.OrderCursor cursor = OrderService.OrderCursor.of(order(5));
+            when(securityUtils.getCurrentUserId()).thenReturn(1L);
+            when(orderSummaryRepository.findByUserIdAfter(1L, cursor.createdAt(), 5L, Limit.of(11))).thenReturn(List.of(order(6)));
 
-            Page<Order> result = orderService.getUserOrders(0, 10, "createdAt", "desc");
+            Slice<OrderSummary> result = orderService.getUserOrders(cursor, 10, "createdAt", "asc");
 
-            assertNotNull(result);
             assertEquals(1, result.getContent().size());
+            assertFalse(result.hasNext());
+        }
+
+        @Test
+        @DisplayName("Сортування лише за індексованими колонками")
+        void getUserOrders_UnindexedSort() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> orderService.getUserOrders(null, 10, "totalPrice", "desc"));
+            verifyNoInteractions(orderSummaryRepository);
+        }
+
+        @Test
+        @DisplayName("Чуже або неіснуюче замовлення не знайдено")
+        void getOrder_NotFound() {
+            when(securityUtils.getCurrentUserId()).thenReturn(1L);
+            when(orderRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.empty());
+
+            assertThrows(IllegalArgumentException.class, () -> orderService.getOrder(5L));
         }
     }
+
+    private static Book book(Long id, double price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setPrice(price);
+        book.setStock(10);
+        return book;
+    }
+
+    private Cart cartWith(Book first, int firstQuantity, Book second, int secondQuantity) {
+        Cart cart = new Cart();
+        cart.setUser(testUser);
+        cart.addOrIncrement(first, firstQuantity);
+        cart.addOrIncrement(second, secondQuantity);
+        return cart;
+    }
 }
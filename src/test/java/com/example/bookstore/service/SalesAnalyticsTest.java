@@ -0,0 +1,249 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.model.Order;
+import com.example.bookstore.model.OrderItem;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.SalesCheckpointRepository;
+import com.example.bookstore.repository.UserRepository;
+import com.example.bookstore.service.SalesAnalytics.BookUnits;
+import com.example.bookstore.service.SalesAnalytics.CategoryRevenue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Orders are never deleted here: the in-memory totals cover every order placed in this
+ * context, and each test compares them with a recompute over the whole orders table.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sales-analytics-test",
+        "bookstore.checkout.batch.enabled=true"
+})
+class SalesAnalyticsTest {
+    private static final int BUYERS = 24;
+
+    @Autowired
+    private SalesAnalytics salesAnalytics;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SalesCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Book> books = new ArrayList<>();
+    private final List<AppUser> buyers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String[] categories = {"Fiction", "SciFi", null};
+        // books stay for the orders that reference them, so every test gets titles of its own
+        long run = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            Book book = new Book();
+            book.setTitle("Analytics Book " + run + "-" + i);
+            book.setAuthor("Author");
+            book.setPrice(3.33 + i * 1.1);
+            book.setCategory(categories[i % categories.length]);
+            book.setStock(1000);
+            books.add(bookRepository.save(book));
+        }
+        for (int i = 0; i < BUYERS; i++) {
+            AppUser user = new AppUser();
+            user.setUsername("analytics-" + System.nanoTime() + "-" + i);
+            user.setPassword("secret");
+            user = userRepository.save(user);
+            buyers.add(user);
+
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart.addOrIncrement(books.get(i % books.size()), 1 + i % 3);
+            cart.addOrIncrement(books.get((i + 2) % books.size()), 2);
+            cartRepository.save(cart);
+        }
+    }
+
+    private void placeAll() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean placing = new AtomicBoolean(true);
+        for (int i = 0; i < buyers.size(); i++) {
+            AppUser buyer = buyers.get(i);
+            boolean batched = i % 2 == 0;
+            pool.submit(() -> {
+                start.await();
+                if (!batched) {
+                    return orderService.createOrder(buyer);
+                }
+                AuthenticatedUser principal = new AuthenticatedUser(
+                        buyer.getId(), buyer.getUsername(), null, buyer.getRole());
+                SecurityContextHolder.getContext().setAuthentication(
+                        UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities()));
+                try {
+                    return checkoutBatcher.createOrder();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        }
+        // checkpoints race with the commits; none of them may skip an order
+        Thread checkpointer = new Thread(() -> {
+            while (placing.get()) {
+                salesAnalytics.checkpoint();
+            }
+        });
+        checkpointer.start();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        placing.set(false);
+        checkpointer.join();
+    }
+
+    private Map<Long, Long> recomputeUnits() {
+        Map<Long, Long> units = new HashMap<>();
+        forEachItem(item -> units.merge(item.getBook().getId(), (long) item.getQuantity(), Long::sum));
+        return units;
+    }
+
+    private List<CategoryRevenue> recomputeRevenue() {
+        Map<String, Long> cents = new HashMap<>();
+        forEachItem(item -> cents.merge(SalesAnalytics.category(item.getBook().getCategory()),
+                SalesAnalytics.cents(item.getQuantity(), item.getPrice()), Long::sum));
+        List<CategoryRevenue> revenue = new ArrayList<>();
+        cents.forEach((category, sum) -> revenue.add(new CategoryRevenue(category, BigDecimal.valueOf(sum, 2).doubleValue())));
+        revenue.sort(Comparator.comparing(CategoryRevenue::category));
+        return revenue;
+    }
+
+    private void forEachItem(Consumer<OrderItem> consumer) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (Order order : orderRepository.findAll()) {
+                order.getItems().forEach(consumer);
+            }
+        });
+    }
+
+    private static Map<Long, Long> units(SalesAnalytics analytics) {
+        Map<Long, Long> units = new HashMap<>();
+        for (BookUnits book : analytics.bestsellers(Integer.MAX_VALUE)) {
+            units.put(book.bookId(), book.units());
+        }
+        return units;
+    }
+
+    private static List<CategoryRevenue> revenue(SalesAnalytics analytics) {
+        List<CategoryRevenue> revenue = new ArrayList<>(analytics.revenueByCategory());
+        revenue.sort(Comparator.comparing(CategoryRevenue::category));
+        return revenue;
+    }
+
+    @Test
+    @DisplayName("Живі лічильники збігаються з перерахунком по історії замовлень")
+    void liveTotals_MatchRecompute() throws Exception {
+        placeAll();
+
+        assertEquals(recomputeUnits(), units(salesAnalytics));
+        assertEquals(recomputeRevenue(), revenue(salesAnalytics));
+        assertTrue(salesAnalytics.revenueByCategory().stream()
+                .anyMatch(r -> r.category().equals(SalesAnalytics.UNCATEGORIZED)));
+    }
+
+    @Test
+    @DisplayName("Відновлення з checkpoint і нових замовлень дає ті самі числа")
+    void rebuild_FromCheckpointAndHistory_MatchesRecompute() throws Exception {
+        placeAll();
+        salesAnalytics.checkpoint();
+        long watermark = checkpointRepository.findWatermark();
+        assertEquals(orderRepository.findMaxId(), watermark);
+
+        // orders after the checkpoint are replayed from history
+        for (AppUser buyer : buyers.subList(0, 3)) {
+            Cart cart = cartRepository.findByUserId(buyer.getId()).orElseThrow();
+            cart.addOrIncrement(books.get(0), 5);
+            cartRepository.save(cart);
+            orderService.createOrder(buyer);
+        }
+
+        SalesAnalytics restarted = new SalesAnalytics(orderRepository, checkpointRepository, transactionManager);
+        restarted.rebuild();
+
+        assertEquals(recomputeUnits(), units(restarted));
+        assertEquals(recomputeRevenue(), revenue(restarted));
+        assertEquals(units(salesAnalytics), units(restarted));
+    }
+
+    @Test
+    @DisplayName("Відхилене замовлення не враховується і не тримає checkpoint")
+    void rejectedOrder_NotCounted() {
+        Book book = books.get(0);
+        long before = salesAnalytics.unitsSold(book.getId());
+        Cart cart = cartRepository.findByUserId(buyers.get(0).getId()).orElseThrow();
+        cart.setQuantity(book.getId(), 5000);
+        cartRepository.save(cart);
+
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder(buyers.get(0)));
+
+        assertEquals(before, salesAnalytics.unitsSold(book.getId()));
+        salesAnalytics.checkpoint();
+        assertEquals(orderRepository.findMaxId(), checkpointRepository.findWatermark());
+    }
+
+    @Test
+    @DisplayName("Топ-N впорядкований за кількістю проданих одиниць")
+    void bestsellers_OrderedByUnits() throws Exception {
+        placeAll();
+
+        List<BookUnits> top = salesAnalytics.bestsellers(3);
+
+        assertEquals(3, top.size());
+        assertTrue(top.get(0).units() >= top.get(1).units());
+        assertTrue(top.get(1).units() >= top.get(2).units());
+        assertThrows(IllegalArgumentException.class, () -> salesAnalytics.bestsellers(0));
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.model.StockMovement;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stock-ledger-test",
+        "bookstore.inventory.ledger.compact-interval=1h"
+})
+class StockLedgerTest {
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        Book newBook = new Book();
+        // books stay for the orders that reference them, so every test gets a title of its own
+        newBook.setTitle("Ledger Book " + System.nanoTime());
+        newBook.setAuthor("Careful Author");
+        newBook.setPrice(12.0);
+        newBook.setStock(20);
+        book = bookService.addBook(newBook);
+    }
+
+    private AppUser buyer(int quantity) {
+        AppUser user = new AppUser();
+        user.setUsername("ledger-" + System.nanoTime());
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.addOrIncrement(book, quantity);
+        cartRepository.save(cart);
+        return user;
+    }
+
+    private int stockInDatabase() {
+        return bookRepository.findById(book.getId()).orElseThrow().getStock();
+    }
+
+    private long snapshotMovementId() {
+        return jdbcTemplate.queryForObject("SELECT movement_id FROM stock_snapshot WHERE book_id = ?",
+                Long.class, book.getId());
+    }
+
+    @Test
+    @DisplayName("Продажі, поповнення та корекції дають той самий залишок, що й book.stock")
+    void ledger_MatchesBookStock() {
+        orderService.createOrder(buyer(3));
+        bookService.restock(book.getId(), 7);
+        bookService.updateStock(book.getId(), 30);
+        orderService.createOrder(buyer(4));
+
+        assertEquals(26, stockInDatabase());
+        assertEquals(26, stockLedger.currentStock(book.getId()));
+
+        List<StockMovement> movements = stockLedger.recentMovements(book.getId(), 10);
+        assertEquals(List.of(StockMovement.Type.SALE, StockMovement.Type.CORRECTION, StockMovement.Type.RESTOCK,
+                        StockMovement.Type.SALE, StockMovement.Type.RESTOCK),
+                movements.stream().map(StockMovement::getType).toList());
+        assertEquals(List.of(-4, 6, 7, -3, 20), movements.stream().map(StockMovement::getDelta).toList());
+        assertNotNull(movements.get(0).getOrderId());
+    }
+
+    @Test
+    @DisplayName("Ущільнення зберігає залишок і пересуває знімок")
+    void compact_KeepsStockAndMovesSnapshot() {
+        orderService.createOrder(buyer(2));
+        bookService.restock(book.getId(), 5);
+        long before = stockLedger.currentStock(book.getId());
+
+        stockLedger.compact();
+
+        assertEquals(before, stockLedger.currentStock(book.getId()));
+        assertEquals(stockLedger.recentMovements(book.getId(), 1).get(0).getId(), snapshotMovementId());
+        assertEquals(23, stockLedger.currentStock(book.getId()));
+    }
+
+    @Test
+    @DisplayName("Відхилене замовлення не залишає записів у журналі")
+    void rejectedOrder_RecordsNothing() {
+        AppUser greedy = buyer(100);
+
+        assertThrows(IllegalStateException.class, () -> orderService.createOrder(greedy));
+
+        assertEquals(1, stockLedger.recentMovements(book.getId(), 10).size());
+        assertEquals(20, stockLedger.currentStock(book.getId()));
+    }
+
+    @Test
+    @DisplayName("Книга, додана поза сервісом, отримує початковий залишок")
+    void bookWithoutMovements_GetsOpeningBalance() {
+        Book imported = new Book();
+        imported.setTitle("Imported");
+        imported.setAuthor("Elsewhere");
+        imported.setPrice(5.0);
+        imported.setStock(9);
+        imported = bookRepository.save(imported);
+
+        assertEquals(9, stockLedger.currentStock(imported.getId()));
+        assertThrows(IllegalArgumentException.class, () -> stockLedger.currentStock(-1L));
+    }
+
+    @Test
+    @DisplayName("Паралельні замовлення під час ущільнення дають точний залишок")
+    void concurrentOrdersWhileCompacting_StayExact() throws Exception {
+        List<AppUser> buyers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            buyers.add(buyer(1));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean ordering = new AtomicBoolean(true);
+        Future<?> compactor = pool.submit(() -> {
+            start.await();
+            while (ordering.get()) {
+                stockLedger.compact();
+            }
+            return null;
+        });
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (AppUser buyer : buyers) {
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(buyer);
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int placed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(60, TimeUnit.SECONDS)) {
+                placed++;
+            }
+        }
+        ordering.set(false);
+        compactor.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        stockLedger.compact();
+
+        assertEquals(20, placed);
+        assertEquals(0, stockInDatabase());
+        assertEquals(0, stockLedger.currentStock(book.getId()));
+        assertEquals(stockLedger.recentMovements(book.getId(), 1).get(0).getId(), snapshotMovementId());
+    }
+}
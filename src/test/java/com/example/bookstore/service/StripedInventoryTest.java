@@ -0,0 +1,253 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:striped-inventory-test",
+        "bookstore.inventory=striped",
+        "bookstore.inventory.reservation-ttl=300ms",
+        "bookstore.inventory.sweep-interval=50ms",
+        "bookstore.inventory.flush-interval=1h",
+        "bookstore.inventory.reconcile-interval=1h"
+})
+class StripedInventoryTest {
+    private static final int STOCK = 40;
+    private static final int BUYERS = 60;
+
+    @Autowired
+    private StripedInventory inventory;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    private Book hotBook;
+    private final List<AppUser> buyers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        hotBook = new Book();
+        // books stay for the orders that reference them, so every test gets a title of its own
+        hotBook.setTitle("Hot Book " + System.nanoTime());
+        hotBook.setAuthor("Popular Author");
+        hotBook.setPrice(15.0);
+        hotBook.setStock(STOCK);
+        hotBook = bookRepository.save(hotBook);
+
+        for (int i = 0; i < BUYERS; i++) {
+            AppUser user = new AppUser();
+            user.setUsername("striped-" + System.nanoTime() + "-" + i);
+            user.setPassword("secret");
+            user = userRepository.save(user);
+            buyers.add(user);
+
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart.addOrIncrement(hotBook, 1);
+            cartRepository.save(cart);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventory.flush();
+    }
+
+    private int stockInDatabase() {
+        return bookRepository.findStockLevelsByIdIn(List.of(hotBook.getId())).get(0).getStock();
+    }
+
+    @Test
+    @DisplayName("Паралельні замовлення однієї книги не продають більше, ніж є, і списуються одним записом")
+    void concurrentCheckouts_NeverOversell() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (AppUser buyer : buyers) {
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    orderService.createOrder(buyer);
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        int placed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                placed++;
+            }
+        }
+        assertEquals(STOCK, placed);
+        assertEquals(0, inventory.available(hotBook.getId()));
+        assertEquals(0, inventory.openReservations());
+        // nothing written until the flush
+        assertEquals(STOCK, stockInDatabase());
+
+        inventory.flush();
+
+        assertEquals(0, stockInDatabase());
+    }
+
+    @Test
+    @DisplayName("Початковий залишок у журналі враховує ще не записані продажі")
+    void ledgerOpening_IncludesPendingSales() {
+        for (int i = 0; i < 3; i++) {
+            orderService.createOrder(buyers.get(i));
+        }
+        assertEquals(STOCK, stockInDatabase());
+
+        assertEquals(STOCK - 3, stockLedger.currentStock(hotBook.getId()));
+        assertEquals(STOCK - 3, stockInDatabase());
+    }
+
+    @Test
+    @DisplayName("Абсолютний залишок не зменшується ще раз на незаписані продажі")
+    void updateStock_WithPendingSales_KeepsRequestedValue() {
+        for (int i = 0; i < 3; i++) {
+            orderService.createOrder(buyers.get(i));
+        }
+        assertEquals(STOCK, stockInDatabase());
+
+        bookService.updateStock(hotBook.getId(), 7);
+        inventory.flush();
+        inventory.reconcile();
+
+        assertEquals(7, stockInDatabase());
+        assertEquals(7, inventory.available(hotBook.getId()));
+        assertEquals(7, stockLedger.currentStock(hotBook.getId()));
+    }
+
+    @Test
+    @DisplayName("Імпортований залишок не зменшується ще раз на незаписані продажі")
+    void importBooks_WithPendingSales_KeepsImportedStock() {
+        for (int i = 0; i < 3; i++) {
+            orderService.createOrder(buyers.get(i));
+        }
+        Book row = new Book();
+        row.setTitle(hotBook.getTitle());
+        row.setAuthor(hotBook.getAuthor());
+        row.setPrice(16.0);
+        row.setStock(7);
+
+        BookImportService.ImportResult result = bookImportService.importBooks(
+                List.of(new BookFeedReader.Row(1, row, null)).iterator());
+        inventory.flush();
+        inventory.reconcile();
+
+        assertEquals(1, result.updated());
+        assertEquals(7, stockInDatabase());
+        assertEquals(7, inventory.available(hotBook.getId()));
+        assertEquals(7, stockLedger.currentStock(hotBook.getId()));
+    }
+
+    @Test
+    @DisplayName("Відкат транзакції повертає залишок")
+    void rollback_GivesStockBack() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            assertEquals(List.of(), inventory.take(Map.of(hotBook.getId(), 5)));
+            assertEquals(STOCK - 5, inventory.available(hotBook.getId()));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(STOCK, inventory.available(hotBook.getId()));
+        assertEquals(0, inventory.openReservations());
+    }
+
+    @Test
+    @DisplayName("Резервування поза транзакцією заборонене")
+    void take_OutsideTransaction() {
+        assertThrows(IllegalStateException.class, () -> inventory.take(Map.of(hotBook.getId(), 1)));
+    }
+
+    @Test
+    @DisplayName("Прострочене резервування повертається і не може бути закомічене")
+    void expiredReservation_ReleasedAndCannotCommit() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long expiredBefore = inventory.expiredReservations();
+
+        assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status -> {
+            inventory.take(Map.of(hotBook.getId(), 3));
+            try {
+                Thread.sleep(600);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // the sweeper has already given the units back
+            assertEquals(STOCK, inventory.available(hotBook.getId()));
+        }));
+
+        assertEquals(expiredBefore + 1, inventory.expiredReservations());
+        assertEquals(STOCK, inventory.available(hotBook.getId()));
+        inventory.flush();
+        assertEquals(STOCK, stockInDatabase());
+    }
+
+    @Test
+    @DisplayName("Звірка переносить зміни залишку, зроблені поза оформленням")
+    void reconcile_AppliesRestock() {
+        orderService.createOrder(buyers.get(0));
+        assertEquals(STOCK - 1, inventory.available(hotBook.getId()));
+
+        inventory.flush();
+        Book book = bookRepository.findById(hotBook.getId()).orElseThrow();
+        book.setStock(book.getStock() + 10);
+        bookRepository.save(book);
+        inventory.reconcile();
+
+        assertEquals(STOCK - 1 + 10, inventory.available(hotBook.getId()));
+        assertEquals(STOCK - 1 + 10, stockInDatabase());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bookstore.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of take and give on one hot SKU with a single stripe and with a stripe per core.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class StripedStockBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(StripedStockBenchmarkTest.class);
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    @DisplayName("Одна смуга проти смуги на ядро")
+    void ampleStock_StripedVersusSingle() throws Exception {
+        long units = (long) THREADS * OPERATIONS;
+        int cores = Runtime.getRuntime().availableProcessors();
+        // warm-up
+        run(1, units);
+        run(cores, units);
+
+        double single = run(1, units);
+        double striped = run(cores, units);
+        log.info("1 stripe: {} operations/s, {} stripes: {} operations/s",
+                Math.round(single), cores, Math.round(striped));
+    }
+
+    /**
+     * Returns operations per second; checks that no unit was sold twice or lost.
+     */
+    private double run(int stripes, long units) throws Exception {
+        StripedStock stock = new StripedStock(units, stripes);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                long sold = 0;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    if (stock.tryTake(1)) {
+                        sold++;
+                        // every fourth checkout is rolled back
+                        if (i % 4 == 0) {
+                            stock.give(1);
+                            sold--;
+                        }
+                    }
+                }
+                return sold;
+            }));
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - began;
+
+        long sold = 0;
+        for (Future<Long> result : results) {
+            sold += result.get();
+        }
+        assertEquals(units, sold + stock.available());
+        return THREADS * (double) OPERATIONS / elapsed * 1_000_000_000L;
+    }
+}
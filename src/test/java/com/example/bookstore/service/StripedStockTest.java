@@ -0,0 +1,129 @@
+package com.example.bookstore.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockTest {
+
+    @Nested
+    @DisplayName("Базові операції")
+    class BasicTests {
+        @Test
+        @DisplayName("Залишок розподіляється між смугами без втрат")
+        void constructor_SplitsStock() {
+            StripedStock stock = new StripedStock(10, 4);
+
+            assertEquals(10, stock.available());
+            assertEquals(4, stock.stripes());
+        }
+
+        @Test
+        @DisplayName("Кількість, більша за одну смугу, збирається з кількох")
+        void tryTake_GathersAcrossStripes() {
+            StripedStock stock = new StripedStock(10, 4);
+
+            assertTrue(stock.tryTake(9));
+            assertEquals(1, stock.available());
+            assertFalse(stock.tryTake(2));
+            assertEquals(1, stock.available());
+        }
+
+        @Test
+        @DisplayName("Повернення і від'ємне коригування зберігають точний залишок")
+        void giveAndAdjust_KeepTotalExact() {
+            StripedStock stock = new StripedStock(4, 4);
+            assertTrue(stock.tryTake(3));
+            stock.give(3);
+            assertEquals(4, stock.available());
+
+            stock.adjust(-6);
+            assertEquals(-2, stock.available());
+            assertFalse(stock.tryTake(1));
+
+            stock.adjust(5);
+            assertEquals(3, stock.available());
+            assertTrue(stock.tryTake(3));
+        }
+
+        @Test
+        @DisplayName("Некоректні параметри")
+        void invalidArguments() {
+            assertThrows(IllegalArgumentException.class, () -> new StripedStock(-1, 4));
+            assertThrows(IllegalArgumentException.class, () -> new StripedStock(1, 0));
+            assertThrows(IllegalArgumentException.class, () -> new StripedStock(1, 1).tryTake(0));
+        }
+    }
+
+    /**
+     * Single hot SKU under contention: no unit is sold twice or lost. Throughput is compared
+     * in {@link StripedStockBenchmarkTest}.
+     */
+    @Nested
+    @DisplayName("Навантаження на одну книгу")
+    class StressTests {
+        private static final int THREADS = 16;
+        private static final int OPERATIONS = 20_000;
+
+        private long run(int stripes, long units) throws Exception {
+            StripedStock stock = new StripedStock(units, stripes);
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    long sold = 0;
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        if (stock.tryTake(1)) {
+                            sold++;
+                            // every fourth checkout is rolled back
+                            if (i % 4 == 0) {
+                                stock.give(1);
+                                sold--;
+                            }
+                        }
+                    }
+                    return sold;
+                }));
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+            long sold = 0;
+            for (Future<Long> result : results) {
+                sold += result.get();
+            }
+            assertEquals(units, sold + stock.available());
+            assertTrue(stock.available() >= 0);
+            return sold;
+        }
+
+        @Test
+        @DisplayName("Продається рівно наявний залишок")
+        void scarceStock_NeverOversells() throws Exception {
+            assertEquals(1_000, run(Runtime.getRuntime().availableProcessors(), 1_000));
+        }
+
+        @Test
+        @DisplayName("Достатній залишок: продані і залишені одиниці сходяться")
+        void ampleStock_NothingLost() throws Exception {
+            long units = (long) THREADS * OPERATIONS;
+            long sold = run(Runtime.getRuntime().availableProcessors(), units);
+
+            // three of every four takes stick
+            assertEquals((long) THREADS * (OPERATIONS - OPERATIONS / 4), sold);
+        }
+    }
+}
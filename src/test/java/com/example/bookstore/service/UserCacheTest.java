@@ -0,0 +1,110 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.model.AppUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private static AppUser user(String username) {
+        AppUser user = new AppUser();
+        user.setId(1L);
+        user.setUsername(username);
+        user.setPassword("hash");
+        return user;
+    }
+
+    @Test
+    @DisplayName("Повторний запит - влучання, невідомий користувач теж кешується")
+    void get_CachesFoundAndMissingUsers() {
+        UserCache cache = new UserCache(Duration.ofMinutes(5), 100, registry);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("alice", name -> {
+            loads.incrementAndGet();
+            return Optional.of(user(name));
+        });
+        Optional<AppUser> alice = cache.get("alice", name -> {
+            loads.incrementAndGet();
+            return Optional.of(user(name));
+        });
+        cache.get("ghost", name -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        Optional<AppUser> ghost = cache.get("ghost", name -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertEquals("alice", alice.orElseThrow().getUsername());
+        assertTrue(ghost.isEmpty());
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(2.0, registry.get("bookstore.user.cache.requests").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Зміна повернутого користувача не псує кеш")
+    void get_ReturnsCopies() {
+        UserCache cache = new UserCache(Duration.ofMinutes(5), 100, registry);
+
+        cache.get("alice", name -> Optional.of(user(name))).orElseThrow().setPassword("tampered");
+
+        assertEquals("hash", cache.get("alice", name -> Optional.empty()).orElseThrow().getPassword());
+    }
+
+    @Test
+    @DisplayName("Запис застаріває після TTL")
+    void get_ReloadsAfterTtl() throws InterruptedException {
+        UserCache cache = new UserCache(Duration.ofMillis(20), 100, registry);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("alice", name -> Optional.of(user(name + loads.incrementAndGet())));
+        Thread.sleep(50);
+        Optional<AppUser> reloaded = cache.get("alice", name -> Optional.of(user(name + loads.incrementAndGet())));
+
+        assertEquals("alice2", reloaded.orElseThrow().getUsername());
+    }
+
+    @Test
+    @DisplayName("Видалення з кешу під час завантаження не дає закешувати старий запис")
+    void evictDuringLoad_NotCached() {
+        UserCache cache = new UserCache(Duration.ofMinutes(5), 100, registry);
+
+        cache.get("alice", name -> {
+            cache.evict(name);
+            return Optional.of(user(name));
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Кількість записів обмежена")
+    void get_BoundedByMaxEntries() {
+        UserCache cache = new UserCache(Duration.ofMinutes(5), 10, registry);
+
+        for (int i = 0; i < 25; i++) {
+            cache.get("user" + i, name -> Optional.of(user(name)));
+        }
+
+        assertTrue(cache.size() <= 10);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("user24", name -> {
+            loads.incrementAndGet();
+            return Optional.of(user(name));
+        });
+        assertEquals(0, loads.get());
+    }
+}
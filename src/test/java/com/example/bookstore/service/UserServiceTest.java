@@ -3,18 +3,20 @@ package com.example.bookstore.service;
 import com.example.bookstore.model.AppUser;
 import com.example.bookstore.model.UserRole;
 import com.example.bookstore.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,13 +33,18 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @InjectMocks
+    private UserCache userCache;
+    private UsernameFilter usernameFilter;
     private UserService userService;
 
     private AppUser testUser;
 
     @BeforeEach
     void setUp() {
+        userCache = new UserCache(Duration.ofMinutes(5), 100, new SimpleMeterRegistry());
+        usernameFilter = new UsernameFilter(mock(JdbcTemplate.class), 1000, 0.01);
+        userService = new UserService(userRepository, passwordEncoder, userCache, usernameFilter);
+
         testUser = new AppUser();
         testUser.setId(1L);
         testUser.setUsername("testuser");
@@ -58,7 +65,6 @@ class UserServiceTest {
             newUser.setPassword("rawPassword");
             newUser.setEmail("new@example.com");
 
-            when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
             when(passwordEncoder.encode("rawPassword")).thenReturn("encodedPassword");
             when(userRepository.save(any(AppUser.class))).thenAnswer(invocation -> {
                 AppUser user = invocation.getArgument(0);
@@ -73,6 +79,24 @@ class UserServiceTest {
             assertEquals(UserRole.ROLE_USER, result.getRole());
             verify(passwordEncoder).encode("rawPassword");
             verify(userRepository).save(any(AppUser.class));
+            verify(userRepository, never()).findByUsername(anyString());
+        }
+
+        @Test
+        @DisplayName("Ім'я, можливо зайняте, перевіряється в базі")
+        void registerUser_MaybeTakenName_LooksUp() {
+            usernameFilter.add("newuser");
+            AppUser newUser = new AppUser();
+            newUser.setUsername("newuser");
+            newUser.setPassword("rawPassword");
+
+            when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
+            when(passwordEncoder.encode("rawPassword")).thenReturn("encodedPassword");
+            when(userRepository.save(any(AppUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+            userService.registerUser(newUser);
+
+            verify(userRepository).findByUsername("newuser");
         }
 
         @Test
@@ -81,6 +105,7 @@ class UserServiceTest {
             AppUser newUser = new AppUser();
             newUser.setUsername("existinguser");
             newUser.setPassword("password");
+            usernameFilter.add("existinguser");
 
             when(userRepository.findByUsername("existinguser")).thenReturn(Optional.of(testUser));
 
@@ -95,7 +120,6 @@ class UserServiceTest {
             newUser.setUsername("newuser");
             newUser.setPassword("password");
 
-            when(userRepository.findByUsername("newuser")).thenReturn(Optional.empty());
             when(passwordEncoder.encode(anyString())).thenReturn("encoded");
             when(userRepository.save(any(AppUser.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -105,6 +129,27 @@ class UserServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("isUsernameAvailable")
+    class IsUsernameAvailableTests {
+
+        @Test
+        @DisplayName("Невідоме фільтру ім'я вільне без запиту до бази")
+        void isUsernameAvailable_UnknownName() {
+            assertTrue(userService.isUsernameAvailable("fresh"));
+            verifyNoInteractions(userRepository);
+        }
+
+        @Test
+        @DisplayName("Зайняте ім'я перевіряється в базі")
+        void isUsernameAvailable_TakenName() {
+            usernameFilter.add("testuser");
+            when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+            assertFalse(userService.isUsernameAvailable("testuser"));
+        }
+    }
+
     @Nested
     @DisplayName("findByUsername")
     class FindByUsernameTests {
@@ -129,6 +174,21 @@ class UserServiceTest {
 
             assertFalse(result.isPresent());
         }
+
+        @Test
+        @DisplayName("Повторний пошук обслуговується з кешу")
+        void findByUsername_SecondCallFromCache() {
+            when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+            userService.findByUsername("testuser");
+            Optional<AppUser> result = userService.findByUsername("testuser");
+
+            assertEquals("testuser", result.orElseThrow().getUsername());
+            assertNotSame(testUser, result.get());
+            verify(userRepository, times(1)).findByUsername("testuser");
+            assertEquals(1, userCache.hits());
+            assertEquals(1, userCache.misses());
+        }
     }
 
     @Nested
@@ -0,0 +1,88 @@
+package com.example.bookstore.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class UsernameFilterTest {
+
+    private static UsernameFilter filter(long expectedUsers, double falsePositiveRate) {
+        return new UsernameFilter(mock(JdbcTemplate.class), expectedUsers, falsePositiveRate);
+    }
+
+    @Test
+    @DisplayName("Додане ім'я завжди знаходиться")
+    void add_NoFalseNegatives() {
+        UsernameFilter filter = filter(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user-" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Частка хибних спрацювань близька до налаштованої")
+    void mightContain_FalsePositiveRateNearConfigured() {
+        UsernameFilter filter = filter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("someone-else-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Паралельні додавання не втрачають бітів")
+    void add_Concurrently() throws Exception {
+        // a small filter so threads keep hitting the same words
+        UsernameFilter filter = filter(100, 0.01);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    filter.add("t" + thread + "-" + i);
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 500; i++) {
+                assertTrue(filter.mightContain("t" + t + "-" + i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Невалідні параметри")
+    void constructor_RejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> filter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> filter(100, 1.0));
+    }
+}
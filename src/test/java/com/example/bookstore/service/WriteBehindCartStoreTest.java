@@ -0,0 +1,257 @@
+package com.example.bookstore.service;
+
+import com.example.bookstore.config.AuthenticatedUser;
+import com.example.bookstore.model.AppUser;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Cart;
+import com.example.bookstore.repository.BookRepository;
+import com.example.bookstore.repository.CartRepository;
+import com.example.bookstore.repository.OrderRepository;
+import com.example.bookstore.repository.OrderSummaryRepository;
+import com.example.bookstore.repository.UserRepository;
+import com.example.bookstore.support.StatementCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:write-behind-cart-test",
+        "bookstore.cart.store=write-behind",
+        "bookstore.cart.max-size=3",
+        "bookstore.cart.flush-interval=1h"
+})
+class WriteBehindCartStoreTest {
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderSummaryRepository orderSummaryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementCounter counter;
+    private final List<AppUser> users = new ArrayList<>();
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        counter = new StatementCounter(entityManagerFactory);
+        for (int i = 0; i < 4; i++) {
+            AppUser user = new AppUser();
+            user.setUsername("wb-user" + i);
+            user.setPassword("secret");
+            users.add(userRepository.save(user));
+        }
+        book = new Book();
+        book.setTitle("Write Behind");
+        book.setAuthor("Author");
+        book.setPrice(10.0);
+        book.setStock(10_000);
+        book = bookRepository.save(book);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (AppUser user : users) {
+            cartStore.update(user, Cart::clear);
+        }
+        cartStore.flush();
+        orderSummaryRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+        userRepository.deleteAll(users);
+        bookRepository.delete(book);
+    }
+
+    private int persistedQuantity(AppUser user) {
+        return transactionTemplate.execute(status -> cartRepository.findByUserId(user.getId())
+                .flatMap(cart -> cart.findItem(book.getId()))
+                .map(item -> item.getQuantity())
+                .orElse(0));
+    }
+
+    @Test
+    @DisplayName("Зміни записуються в базу лише під час flush")
+    void update_WrittenOnFlush() {
+        AppUser user = users.get(0);
+
+        Cart cart = cartStore.update(user, c -> c.addOrIncrement(book, 2));
+
+        assertEquals(2, cart.findItem(book.getId()).orElseThrow().getQuantity());
+        assertEquals(0, persistedQuantity(user));
+
+        cartStore.flush();
+
+        assertEquals(2, persistedQuantity(user));
+    }
+
+    @Test
+    @DisplayName("Багато змін одного кошика зливаються в один запис")
+    void updates_CoalescedIntoOneWrite() {
+        AppUser user = users.get(0);
+        cartStore.update(user, c -> c.addOrIncrement(book, 1));
+        cartStore.flush();
+
+        for (int i = 0; i < 100; i++) {
+            cartStore.update(user, c -> c.addOrIncrement(book, 1));
+        }
+        counter.reset();
+        cartStore.flush();
+
+        assertEquals(1, counter.updates());
+        assertEquals(0, counter.inserts());
+        assertEquals(101, persistedQuantity(user));
+
+        counter.reset();
+        cartStore.flush();
+        assertEquals(0, counter.statements());
+    }
+
+    @Test
+    @DisplayName("Повторний flush не вставляє рядки вдруге")
+    void flush_AdoptsGeneratedIds() {
+        AppUser user = users.get(0);
+        cartStore.update(user, c -> c.addOrIncrement(book, 1));
+        cartStore.flush();
+        cartStore.update(user, c -> c.setQuantity(book.getId(), 3));
+
+        counter.reset();
+        cartStore.flush();
+
+        assertEquals(0, counter.inserts());
+        assertEquals(3, persistedQuantity(user));
+        assertEquals(1, cartRepository.count());
+    }
+
+    @Test
+    @DisplayName("Витіснений кошик завантажується з бази")
+    void evictedCart_LoadedFromDatabase() {
+        for (AppUser user : users) {
+            cartStore.update(user, c -> c.addOrIncrement(book, 1));
+        }
+
+        assertTrue(cartStore.size() <= 3);
+        // the first cart had to be flushed before it could be evicted
+        assertEquals(1, persistedQuantity(users.get(0)));
+        Cart reloaded = cartStore.get(users.get(0));
+        assertEquals(1, reloaded.findItem(book.getId()).orElseThrow().getQuantity());
+        assertEquals("Write Behind", reloaded.findItem(book.getId()).orElseThrow().getBook().getTitle());
+    }
+
+    @Test
+    @DisplayName("Паралельні зміни одного кошика не губляться")
+    void concurrentUpdates_NoLostIncrements() throws Exception {
+        AppUser user = users.get(0);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    cartStore.update(user, c -> c.addOrIncrement(book, 1));
+                    if (i % 25 == 0) {
+                        cartStore.flush();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        for (Future<?> result : results) {
+            result.get();
+        }
+        cartStore.flush();
+
+        assertEquals(800, cartStore.get(user).findItem(book.getId()).orElseThrow().getQuantity());
+        assertEquals(800, persistedQuantity(user));
+    }
+
+    @Test
+    @DisplayName("Оформлення замовлення бачить незаписаний кошик")
+    void checkout_ReadsInMemoryCart() {
+        AppUser user = users.get(0);
+        cartStore.update(user, c -> c.addOrIncrement(book, 2));
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getUsername(), null, user.getRole());
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities()));
+        try {
+            orderService.createOrder();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        assertTrue(cartStore.get(user).getItems().isEmpty());
+        assertEquals(10_000 - 2, bookRepository.findById(book.getId()).orElseThrow().getStock());
+        cartStore.flush();
+        assertEquals(0, persistedQuantity(user));
+    }
+
+    @Test
+    @DisplayName("Кошик не очищується, якщо транзакція замовлення відкочена")
+    void checkout_RolledBack_KeepsCart() {
+        AppUser user = users.get(0);
+        cartStore.update(user, c -> c.addOrIncrement(book, 2));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.createOrder(user);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(2, cartStore.get(user).findItem(book.getId()).orElseThrow().getQuantity());
+        assertEquals(10_000, bookRepository.findById(book.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    @DisplayName("Додане під час оформлення залишається в кошику")
+    void checkout_KeepsLinesAddedMeanwhile() {
+        AppUser user = users.get(0);
+        cartStore.update(user, c -> c.addOrIncrement(book, 2));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.createOrder(user);
+            cartStore.update(user, c -> c.addOrIncrement(book, 3));
+        });
+
+        assertEquals(3, cartStore.get(user).findItem(book.getId()).orElseThrow().getQuantity());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bookstore.support;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Counts JDBC statements prepared by Hibernate, for query-budget assertions.
+ * Relies on {@code hibernate.generate_statistics}; statistics are global, so tests using it
+ * must not run in parallel with other database tests.
+ */
+public class StatementCounter {
+    private final Statistics statistics;
+
+    public StatementCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    public long statements() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    public long inserts() {
+        return statistics.getEntityInsertCount();
+    }
+
+    public long updates() {
+        return statistics.getEntityUpdateCount();
+    }
+
+    public long deletes() {
+        return statistics.getEntityDeleteCount();
+    }
+
+    /**
+     * How often rows of the given entity were loaded or fetched since the last reset.
+     */
+    public long loads(Class<?> entityType) {
+        EntityStatistics entityStatistics = statistics.getEntityStatistics(entityType.getName());
+        return entityStatistics.getLoadCount() + entityStatistics.getFetchCount();
+    }
+}